@@ -0,0 +1,21 @@
+-- Creates ENCOUNTER_PARTICIPANT and backfills it from the "id:id" team strings of the existing encounters.
+-- Safe to run more than once.
+
+CREATE TABLE IF NOT EXISTS `ENCOUNTER_PARTICIPANT` (
+  `encounter_id` int NOT NULL,
+  `player_id` int NOT NULL,
+  `team_no` tinyint NOT NULL,
+  `encounter_date` date NOT NULL,
+  PRIMARY KEY (`encounter_id`, `player_id`),
+  KEY `encounter_participant_player_date` (`player_id`, `encounter_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- First and last id of each team, a singles team yields the same id twice and the duplicate is ignored
+INSERT IGNORE INTO `ENCOUNTER_PARTICIPANT` (`encounter_id`, `player_id`, `team_no`, `encounter_date`)
+SELECT id, CAST(SUBSTRING_INDEX(team_1, ':', 1) AS UNSIGNED), 1, encounter_date FROM ENCOUNTER
+UNION ALL
+SELECT id, CAST(SUBSTRING_INDEX(team_1, ':', -1) AS UNSIGNED), 1, encounter_date FROM ENCOUNTER
+UNION ALL
+SELECT id, CAST(SUBSTRING_INDEX(team_2, ':', 1) AS UNSIGNED), 2, encounter_date FROM ENCOUNTER
+UNION ALL
+SELECT id, CAST(SUBSTRING_INDEX(team_2, ':', -1) AS UNSIGNED), 2, encounter_date FROM ENCOUNTER;
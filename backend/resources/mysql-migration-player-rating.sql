@@ -0,0 +1,24 @@
+-- Creates PLAYER_RATING and PLAYER_RATING_HISTORY used by the shadow rating models (rating.shadow-algorithms).
+-- Players without a row start from their current rank score, so nothing needs seeding. Safe to run more than once.
+
+CREATE TABLE IF NOT EXISTS `PLAYER_RATING` (
+  `algorithm` varchar(32) NOT NULL,
+  `player_id` int NOT NULL,
+  `rating` double NOT NULL,
+  `rating_deviation` double NOT NULL,
+  `volatility` double NOT NULL,
+  `rated_until` date NOT NULL,
+  PRIMARY KEY (`algorithm`, `player_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE IF NOT EXISTS `PLAYER_RATING_HISTORY` (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `algorithm` varchar(32) NOT NULL,
+  `player_id` int NOT NULL,
+  `rating` double NOT NULL,
+  `rating_deviation` double NOT NULL,
+  `volatility` double NOT NULL,
+  `rating_date` date NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `player_rating_history_algorithm_player` (`algorithm`, `player_id`, `rating_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,12 @@
+-- Creates PROCESSING_CHECKPOINT and seeds it with the latest game day already processed.
+-- Safe to run more than once.
+
+CREATE TABLE IF NOT EXISTS `PROCESSING_CHECKPOINT` (
+  `name` varchar(32) NOT NULL,
+  `last_processed_date` date NOT NULL,
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT IGNORE INTO `PROCESSING_CHECKPOINT` (`name`, `last_processed_date`)
+SELECT 'ENCOUNTER_PROCESSING', MAX(encounter_date) FROM ENCOUNTER WHERE processed = 1 HAVING MAX(encounter_date) IS NOT NULL;
@@ -0,0 +1,3 @@
+-- Adds the player and date index of SCORE_HISTORY used by the per-player history reads and the absentee detection.
+
+ALTER TABLE `SCORE_HISTORY` ADD KEY `score_history_player_date` (`player_id`, `encounter_date`);
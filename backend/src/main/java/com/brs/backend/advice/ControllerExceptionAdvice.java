@@ -29,11 +29,11 @@ public class ControllerExceptionAdvice extends ResponseEntityExceptionHandler {
     }
 
     @ExceptionHandler(value = {IllegalArgumentException.class})
-    protected ResponseEntity<Object> handleIllegalArgumentTypeMismatch(MethodArgumentTypeMismatchException ex, WebRequest request)
+    protected ResponseEntity<Object> handleIllegalArgument(IllegalArgumentException ex, WebRequest request)
     {
 
         String bodyOfResponse = ex.getMessage();
-        log.error("Request [{}] failed with method argument error with message {}", request.getContextPath(), bodyOfResponse, ex);
+        log.error("Request [{}] failed with illegal argument with message {}", request.getContextPath(), bodyOfResponse, ex);
         return handleExceptionInternal(ex, bodyOfResponse,
                 new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
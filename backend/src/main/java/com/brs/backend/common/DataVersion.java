@@ -0,0 +1,75 @@
+package com.brs.backend.common;
+
+import com.brs.backend.core.RatingsUpdatedEvent;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global version of the data served by the read endpoints, bumped by every write.
+ * <p>
+ * The version is the epoch millis of the last change, so it keeps increasing across restarts and doubles as the
+ * Last-Modified date. Writes inside a transaction bump it once the transaction committed, so a client can never
+ * cache data older than the version it was given.
+ * <p>
+ * Rating changes are served from read models rebuilt on {@link RatingsUpdatedEvent}, so for those the version moves
+ * with the event, after every other listener rebuilt. A client given the new version is then always served the
+ * rebuilt data.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onRatingsUpdated(RatingsUpdatedEvent event) {
+        increment();
+    }
+
+    /**
+     * Bumps the version for writes not covered by a {@link RatingsUpdatedEvent}, such as new encounters.
+     */
+    public void bump() {
+        AfterCommit.run(this::increment);
+    }
+
+    /**
+     * Sets the ETag and Last-Modified headers of the current version and returns true when the client already holds
+     * it, in which case the response is a 304 and the handler returns without reading anything.
+     */
+    public boolean checkNotModified(ServletWebRequest webRequest) {
+        return checkNotModified(webRequest, null);
+    }
+
+    /**
+     * Same as {@link #checkNotModified(ServletWebRequest)} for an alternative representation of the same URL, which
+     * gets its own ETag.
+     */
+    public boolean checkNotModified(ServletWebRequest webRequest, String variant) {
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            // Browsers must revalidate instead of guessing a freshness lifetime from Last-Modified
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            // Some resources have representations chosen by the Accept header, each with its own ETag
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        long current = current();
+        String etag = variant == null ? "\"" + current + "\"" : "\"" + current + "-" + variant + "\"";
+        return webRequest.checkNotModified(etag, current);
+    }
+
+    private void increment() {
+        version.accumulateAndGet(System.currentTimeMillis(), (previous, now) -> Math.max(previous + 1, now));
+    }
+}
@@ -0,0 +1,89 @@
+package com.brs.backend.common;
+
+import com.brs.backend.dto.PlayerDisplay;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.PlayerRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Shared, bounded cache of what is needed to show a player : id, name and color, by id and id by name.
+ * <p>
+ * Entries are evicted by size and age. Player updates invalidate the player explicitly once their transaction
+ * committed, so a rename shows up right away.
+ */
+@Component
+@Slf4j
+public class PlayerDisplayCache {
+
+    private final LoadingCache<Integer, PlayerDisplay> playersById;
+
+    private final LoadingCache<String, Integer> playerIdsByName;
+
+    public PlayerDisplayCache(PlayerRepository playerRepository,
+                              @Value("${player-cache.maximum-size:1000}") long maximumSize,
+                              @Value("${player-cache.expire-after-write-minutes:60}") long expireAfterWriteMinutes) {
+        this.playersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public PlayerDisplay load(Integer playerId) {
+                        return playerRepository.findById(playerId).map(PlayerDisplayCache::toDisplay).orElse(null);
+                    }
+
+                    @Override
+                    public Map<Integer, PlayerDisplay> loadAll(Set<? extends Integer> playerIds) {
+                        var displays = new HashMap<Integer, PlayerDisplay>();
+                        playerRepository.findAllById(List.copyOf(playerIds)).forEach(p -> displays.put(p.getId(), toDisplay(p)));
+                        return displays;
+                    }
+                });
+        this.playerIdsByName = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .build(name -> playerRepository.findOptionalPlayerByName(name).map(Player::getId).orElse(null));
+    }
+
+    public Optional<PlayerDisplay> getPlayer(int playerId) {
+        return Optional.ofNullable(playersById.get(playerId));
+    }
+
+    /**
+     * Returns the players found among the given ids, reading all missing ones with a single query.
+     */
+    public Map<Integer, PlayerDisplay> getPlayers(Collection<Integer> playerIds) {
+        return playersById.getAll(playerIds);
+    }
+
+    public Optional<Integer> getPlayerIdByName(String name) {
+        return Optional.ofNullable(playerIdsByName.get(name));
+    }
+
+    /**
+     * Drops the cached player, after commit when called inside a transaction.
+     */
+    public void invalidate(int playerId) {
+        AfterCommit.run(() -> {
+            playersById.invalidate(playerId);
+            // The old name of a renamed player is not known anymore, names are cheap to load again
+            playerIdsByName.invalidateAll();
+        });
+    }
+
+    private static PlayerDisplay toDisplay(Player player) {
+        return new PlayerDisplay(player.getId(), player.getName(), player.getColorHex());
+    }
+}
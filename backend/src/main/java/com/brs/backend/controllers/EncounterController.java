@@ -1,29 +1,37 @@
 package com.brs.backend.controllers;
 
-import com.brs.backend.core.RankScoreCalculator;
-import com.brs.backend.core.RankScoreCalculatorProvider;
+import com.brs.backend.common.DataVersion;
+import com.brs.backend.core.RatingReplayEngine;
+import com.brs.backend.dto.BulkEncounterResult;
 import com.brs.backend.dto.EncounterResult;
 import com.brs.backend.dto.EncounterResultV2;
+import com.brs.backend.dto.IngestionSummary;
 import com.brs.backend.dto.PlayerEncounterHistoryRecord;
+import com.brs.backend.dto.ProcessingJobStatus;
+import com.brs.backend.dto.ReplayResult;
+import com.brs.backend.dto.ReplayTarget;
+import com.brs.backend.dto.SimulationResult;
 import com.brs.backend.model.Encounter;
-import com.brs.backend.model.Player;
 import com.brs.backend.repositories.EncounterRepository;
+import com.brs.backend.services.EncounterIngestionService;
+import com.brs.backend.services.EncounterProcessingService;
 import com.brs.backend.services.EncounterService;
-import com.brs.backend.services.PlayerService;
-import com.brs.backend.services.ScoreHistoryService;
+import com.brs.backend.services.ProcessingJobService;
 import com.brs.backend.util.EncounterUtil;
 import com.brs.backend.util.PlayerUtil;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.regex.Pattern;
 
 @RestController
 @Slf4j
@@ -37,22 +45,31 @@ public class EncounterController {
     PlayerUtil playerUtil;
 
     @Autowired
-    private RankScoreCalculatorProvider rankScoreCalculatorProvider;
+    private EncounterUtil encounterUtil;
 
     @Autowired
-    private EncounterUtil encounterUtil;
+    private EncounterService encounterService;
 
     @Autowired
-    private PlayerService playerService;
+    private EncounterProcessingService encounterProcessingService;
 
     @Autowired
-    private ScoreHistoryService scoreHistoryService;
+    private EncounterIngestionService encounterIngestionService;
 
     @Autowired
-    private EncounterService encounterService;
+    private ProcessingJobService processingJobService;
+
+    @Autowired
+    private RatingReplayEngine ratingReplayEngine;
+
+    @Autowired
+    private DataVersion dataVersion;
 
     @GetMapping("/encounters")
-    private List<Encounter> getAllEncounters() {
+    private List<Encounter> getAllEncounters(ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
         return encounterRepository.findAll();
     }
 
@@ -85,48 +102,56 @@ public class EncounterController {
         }
     }
 
+    @PostMapping("/v2/encounters/{date}/add-all")
+    @Parameter(name = "x-api-key", required = false, example = "sample-api-key", in = ParameterIn.HEADER)
+    public BulkEncounterResult addEncountersBulkV2(
+            @PathVariable LocalDate date,
+            @RequestBody List<EncounterResultV2> results
+    ) {
+        log.info("V2 endpoint Adding {} encounters for date : {}", results.size(), date);
+        try {
+            BulkEncounterResult result = encounterService.upsertEncounters(date, results);
+            dataVersion.bump();
+            return result;
+        } catch (RuntimeException e) {
+            log.error("Bulk encounter adding failed with error [{}]", e.getMessage(), e);
+            throw e;
+        }
+    }
+
     @PostMapping(value = "/encounters/add-by-file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
     private String addEncountersByFile(@RequestParam("file") MultipartFile file) {
 
         // TODO handle these ugly runtime exceptions and replace them with proper exceptions caughtable by a response handler
-        String fileName = file.getOriginalFilename();
-        if (fileName == null) {
-            throw new RuntimeException("File name should not be null");
-        }
-
-        if (!fileName.startsWith("encounter_")) {
-            throw new RuntimeException("Encounter file name should starts with 'encounter_'");
-        }
-
-        String dateSubStr = fileName.substring(10, 20);
-
-        if (!Pattern.compile("20[2-9][0-9]-[0-1][0-9]-[0-3][0-9]").matcher(dateSubStr).find()) {
-            throw new RuntimeException("Encounter file name should starts with 'encounter_' and then should be immediately followed by a date string in the format of yyyy-mm-dd");
-        }
-
-        LocalDate encounterDate = LocalDate.parse(dateSubStr);
-
-        if (!fileName.endsWith(".csv")) {
-            throw new RuntimeException("Encounter file name should have the extension : '.csv'");
-        }
+        LocalDate encounterDate = encounterUtil.parseEncounterFileDate(file.getOriginalFilename());
 
         List<EncounterResult> encounterResults = encounterUtil.parseCsvFileToEncounters(file);
 
-        for (EncounterResult encounterResult : encounterResults) {
-            persistEncounterResult(encounterDate, encounterResult);
-            log.info("Persisted encounter : {} for : {}", encounterResult, encounterDate);
-        }
+        List<Encounter> saved = encounterService.addEncounters(encounterDate, encounterResults);
+        dataVersion.bump();
+        log.info("Persisted {} encounters for : {}", saved.size(), encounterDate);
 
         return "ok";
     }
 
+    @PostMapping(value = "/encounters/add-by-archive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
+    public IngestionSummary addEncountersByArchive(@RequestParam("file") MultipartFile file) {
+        log.info("Ingesting encounter archive : {}", file.getOriginalFilename());
+        return encounterIngestionService.ingestArchive(file);
+    }
+
     @GetMapping("/encounters-for-players")
     public List<PlayerEncounterHistoryRecord> getEncountersForPlayers(@RequestParam(required = true) Integer teamAp1,
                                                                       @RequestParam(required = false) Integer teamAp2,
                                                                       @RequestParam(required = false) Integer teamBp1,
-                                                                      @RequestParam(required = false) Integer teamBp2
+                                                                      @RequestParam(required = false) Integer teamBp2,
+                                                                      ServletWebRequest webRequest
     ) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
         return encounterService.getPlayerEncounterHistory(teamAp1, teamAp2, teamBp1, teamBp2);
     }
 
@@ -139,40 +164,54 @@ public class EncounterController {
     @PostMapping("/encounters/{date}/process")
     @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
     private String processEncounter(@PathVariable LocalDate date) {
-        List<Encounter> encounters = encounterRepository.findAllByEncounterDate(date);
-        log.info("Found {} encounters for date {}", encounters.size(), date);
-
-        List<Encounter> unprocessedEncounters = encounters.stream()
-                .filter(e -> !e.isProcessed())
-                .toList();
-
-        if (unprocessedEncounters.isEmpty()) {
-            log.error("Found 0 unprocessed encounters for the date {}", date);
-            throw new RuntimeException("No unprocessed encounters");
-        }
+        // Runs as a processing job, so it never overlaps with a job or another call for the same date
+        processingJobService.processAndWait(date);
+        return "Done";
+    }
 
-        RankScoreCalculator rankScoreCalculator = rankScoreCalculatorProvider.getRankScoreCalculator();
-        List<Player> absentPlayers = playerService.getAllPlayers();
+    @PostMapping("/encounters/{date}/process-jobs")
+    @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ProcessingJobStatus submitProcessingJob(@PathVariable LocalDate date) {
+        return processingJobService.submit(date);
+    }
 
-        for (Encounter unprocessedEncounter : unprocessedEncounters) {
-            rankScoreCalculator.calculateAndPersist(unprocessedEncounter);
-            playerUtil.getPlayersByIdsString(unprocessedEncounter.getTeam1()).forEach(absentPlayers::remove);
-            playerUtil.getPlayersByIdsString(unprocessedEncounter.getTeam2()).forEach(absentPlayers::remove);
-        }
+    @PostMapping("/v2/encounters/{date}/process-jobs")
+    @Parameter(name = "x-api-key", required = false, example = "sample-api-key", in = ParameterIn.HEADER)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ProcessingJobStatus submitProcessingJobV2(@PathVariable LocalDate date) {
+        return submitProcessingJob(date);
+    }
 
-        log.info("Following players are absentees : {}", absentPlayers);
-        rankScoreCalculator.calculateAbsenteeScoreAndPersist(absentPlayers);
+    @PostMapping("/encounters/process-range")
+    @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ProcessingJobStatus submitBackfillJob(@RequestParam(required = false) LocalDate from,
+                                                 @RequestParam(required = false) LocalDate to) {
+        log.info("Backfilling unprocessed encounters from {} to {}", from, to);
+        return processingJobService.submitBackfill(from, to);
+    }
 
-        log.info("Updating player ranking once process every encounter for the date : {}", date);
-        List<Player> updatePlayerRanking = playerService.updatePlayerRanking();
+    @GetMapping("/encounters/process-jobs/{jobId}")
+    public ResponseEntity<ProcessingJobStatus> getProcessingJob(@PathVariable String jobId) {
+        return ResponseEntity.of(processingJobService.getStatus(jobId));
+    }
 
-        log.info("Updating the new ranks in the history table");
-        for (Player player : updatePlayerRanking) {
-            log.info("  - updating player : {}", player.getId());
-            scoreHistoryService.updatePlayerEncounterNewRanking(player.getId(), date, player.getPlayerRank());
-        }
+    @PostMapping("/v2/encounters/{date}/simulate")
+    @Parameter(name = "x-api-key", required = false, example = "sample-api-key", in = ParameterIn.HEADER)
+    public SimulationResult simulateEncounters(
+            @PathVariable LocalDate date,
+            @RequestBody(required = false) List<EncounterResultV2> results
+    ) {
+        log.info("Simulating encounters for date : {}", date);
+        return encounterProcessingService.simulateEncounters(date, results);
+    }
 
-        return "Done";
+    @PostMapping("/v2/encounters/replay")
+    @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
+    public ReplayResult replayEncounters(@RequestParam(defaultValue = "SHADOW") ReplayTarget target) {
+        log.info("Replaying all processed encounters into target : {}", target);
+        return ratingReplayEngine.replay(target);
     }
 
     @PostMapping("/v2/encounters/{date}/process")
@@ -197,7 +236,9 @@ public class EncounterController {
                 .team2SetPoints(result.team2().setPoints())
                 .build();
 
-        return encounterRepository.save(encounter);
+        Encounter saved = encounterService.addEncounter(encounter);
+        dataVersion.bump();
+        return saved;
     }
 
     private Encounter persistEncounterResultV2(LocalDate date, EncounterResultV2 result) {
@@ -210,6 +251,8 @@ public class EncounterController {
                 .team2SetPoints(result.team2().setPoints())
                 .build();
 
-        return encounterRepository.save(encounter);
+        Encounter saved = encounterService.addEncounter(encounter);
+        dataVersion.bump();
+        return saved;
     }
 }
@@ -0,0 +1,61 @@
+package com.brs.backend.controllers;
+
+import com.brs.backend.dto.ExportDataset;
+import com.brs.backend.dto.ExportFormat;
+import com.brs.backend.services.ExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@Slf4j
+@RequiredArgsConstructor
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final ExportService exportService;
+
+    @GetMapping("/export/encounters")
+    public ResponseEntity<StreamingResponseBody> exportEncounters(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) Integer sinceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate sinceDate) {
+        return export(ExportDataset.ENCOUNTERS, format, sinceId, sinceDate);
+    }
+
+    @GetMapping("/export/score-history")
+    public ResponseEntity<StreamingResponseBody> exportScoreHistory(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) Integer sinceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate sinceDate) {
+        return export(ExportDataset.SCORE_HISTORY, format, sinceId, sinceDate);
+    }
+
+    @GetMapping("/export/players")
+    public ResponseEntity<StreamingResponseBody> exportPlayers(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) Integer sinceId) {
+        return export(ExportDataset.PLAYERS, format, sinceId, null);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportDataset dataset, ExportFormat format, Integer sinceId,
+                                                         LocalDate sinceDate) {
+        log.info("Exporting {} as {} since id {} and date {}", dataset, format, sinceId, sinceDate);
+        String fileName = dataset.name().toLowerCase() + (format == ExportFormat.CSV ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(out -> exportService.export(dataset, format, sinceId, sinceDate, out));
+    }
+}
@@ -1,10 +1,18 @@
 package com.brs.backend.controllers;
 
 import com.brs.backend.dto.GamePlayer;
+import com.brs.backend.dto.Matchup;
+import com.brs.backend.dto.MatchmakingResult;
+import com.brs.backend.dto.MatchupPrediction;
+import com.brs.backend.dto.request.MatchmakingRequest;
 import com.brs.backend.services.GameService;
+import com.brs.backend.services.MatchmakingService;
+import com.brs.backend.services.WinProbabilityService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -16,10 +24,24 @@ public class GameController {
 
     private final GameService gameService;
 
+    private final WinProbabilityService winProbabilityService;
+
+    private final MatchmakingService matchmakingService;
+
     @GetMapping("/v2/game/players")
     public List<GamePlayer> getPlayers() {
         return gameService.getAvailablePlayersForGame();
     }
 
+    @PostMapping("/v2/game/win-probabilities")
+    public List<MatchupPrediction> getWinProbabilities(@RequestBody List<Matchup> matchups) {
+        return winProbabilityService.predict(matchups);
+    }
+
+    @PostMapping("/v2/game/matchmaking")
+    public MatchmakingResult findMatches(@RequestBody MatchmakingRequest request) {
+        return matchmakingService.findMatches(request);
+    }
+
 
 }
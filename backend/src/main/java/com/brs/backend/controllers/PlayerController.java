@@ -1,11 +1,13 @@
 package com.brs.backend.controllers;
 
+import com.brs.backend.common.DataVersion;
+import com.brs.backend.core.PairStatisticsMatrix;
 import com.brs.backend.dto.*;
 import com.brs.backend.dto.request.ActivateUser;
 import com.brs.backend.dto.request.NewPlayer;
 import com.brs.backend.dto.request.UpdatePlayer;
-import com.brs.backend.model.Player;
 import com.brs.backend.services.EncounterService;
+import com.brs.backend.util.ColumnarHistoryEncoder;
 import com.brs.backend.services.PlayerService;
 import com.brs.backend.services.ScoreHistoryService;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,6 +15,7 @@ import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,37 +24,103 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class PlayerController {
 
+    private static final String COLUMNAR = "columnar";
+
     private final ScoreHistoryService scoreHistoryService;
 
     private final PlayerService playerService;
 
     private final EncounterService encounterService;
 
+    private final DataVersion dataVersion;
+
+    private final PairStatisticsMatrix pairStatisticsMatrix;
+
     @GetMapping("/players")
-    public List<PlayerInfo> getPlayers(@RequestParam Optional<String> status) {
+    public List<PlayerInfo> getPlayers(@RequestParam Optional<String> status, ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
         return playerService.getPlayerInfoByStatus(status);
     }
 
     @GetMapping("/v2/auth/players")
-    public List<SecurePlayerInfo> getPlayersAuth(@RequestParam Optional<String> status) {
+    public List<SecurePlayerInfo> getPlayersAuth(@RequestParam Optional<String> status, ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
         return playerService.getSecurePlayerInfoByStatus(status);
     }
 
+    @GetMapping("/players/leaderboard")
+    public List<LeaderboardEntry> getLeaderboard(@RequestParam(defaultValue = "10") int limit, ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+        return playerService.getLeaderboard(limit);
+    }
+
+    @GetMapping("/players/{playerId}/rank")
+    public ResponseEntity<LeaderboardEntry> getPlayerRank(@PathVariable int playerId) {
+        return ResponseEntity.of(playerService.getLeaderboardEntry(playerId));
+    }
+
     @GetMapping("/players/history")
-    public List<PlayerHistory> getAllPlayersHistory(@RequestParam(defaultValue = "RANK") HistoryType type) {
-        return playerService.getAllPlayers().stream()
-                .filter(Player::isActive)
-                .map(e -> scoreHistoryService.getPlayerHistory(e.getId(), type))
-                .toList();
+    public List<PlayerHistory> getAllPlayersHistory(@RequestParam(defaultValue = "RANK") HistoryType type,
+                                                    ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+        return scoreHistoryService.getActivePlayersHistory(type);
+    }
+
+    @GetMapping(value = "/players/history", params = "format=columnar")
+    public ColumnarHistory getAllPlayersColumnarHistory(@RequestParam(defaultValue = "RANK") HistoryType type,
+                                                        ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest, COLUMNAR)) {
+            return null;
+        }
+        return ColumnarHistoryEncoder.encode(type, scoreHistoryService.getActivePlayersHistory(type));
+    }
+
+    @GetMapping(value = "/players/history", produces = ColumnarHistory.MEDIA_TYPE)
+    public ColumnarHistory getAllPlayersColumnarHistoryByAccept(@RequestParam(defaultValue = "RANK") HistoryType type,
+                                                                ServletWebRequest webRequest) {
+        return getAllPlayersColumnarHistory(type, webRequest);
     }
 
     @GetMapping("/players/{playerId}/history")
-    public PlayerHistory gePlayerHistory(@PathVariable int playerId, @RequestParam(defaultValue = "RANK") HistoryType type) {
+    public PlayerHistory gePlayerHistory(@PathVariable int playerId, @RequestParam(defaultValue = "RANK") HistoryType type,
+                                         ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
         return scoreHistoryService.getPlayerHistory(playerId, type);
     }
 
+    @GetMapping(value = "/players/{playerId}/history", params = "format=columnar")
+    public ColumnarHistory getPlayerColumnarHistory(@PathVariable int playerId,
+                                                    @RequestParam(defaultValue = "RANK") HistoryType type,
+                                                    ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest, COLUMNAR)) {
+            return null;
+        }
+        return ColumnarHistoryEncoder.encode(type, List.of(scoreHistoryService.getPlayerHistory(playerId, type)));
+    }
+
+    @GetMapping(value = "/players/{playerId}/history", produces = ColumnarHistory.MEDIA_TYPE)
+    public ColumnarHistory getPlayerColumnarHistoryByAccept(@PathVariable int playerId,
+                                                            @RequestParam(defaultValue = "RANK") HistoryType type,
+                                                            ServletWebRequest webRequest) {
+        return getPlayerColumnarHistory(playerId, type, webRequest);
+    }
+
     @GetMapping("/players/{playerId}/encounters")
-    public ResponseEntity<PlayerEncounterHistory> getPlayerEncounterHistory(@PathVariable int playerId) {
+    public ResponseEntity<PlayerEncounterHistory> getPlayerEncounterHistory(@PathVariable int playerId,
+                                                                            ServletWebRequest webRequest) {
+        if (dataVersion.checkNotModified(webRequest)) {
+            return null;
+        }
         var playerEncounterHistory = encounterService.getPlayerEncounterHistory(playerId);
         if (playerEncounterHistory == null) {
             return ResponseEntity.notFound().build();
@@ -60,6 +129,26 @@ public class PlayerController {
         }
     }
 
+    @GetMapping("/players/{playerId}/partners")
+    public List<PairStatistics> getPartnerStatistics(@PathVariable int playerId) {
+        return pairStatisticsMatrix.getPartnerStatistics(playerId);
+    }
+
+    @GetMapping("/players/{playerId}/partners/{partnerId}")
+    public PairStatistics getPartnerStatistics(@PathVariable int playerId, @PathVariable int partnerId) {
+        return pairStatisticsMatrix.getPartnerStatistics(playerId, partnerId);
+    }
+
+    @GetMapping("/players/{playerId}/opponents")
+    public List<PairStatistics> getOpponentStatistics(@PathVariable int playerId) {
+        return pairStatisticsMatrix.getOpponentStatistics(playerId);
+    }
+
+    @GetMapping("/players/{playerId}/opponents/{opponentId}")
+    public PairStatistics getOpponentStatistics(@PathVariable int playerId, @PathVariable int opponentId) {
+        return pairStatisticsMatrix.getOpponentStatistics(playerId, opponentId);
+    }
+
     @PostMapping("/v2/players/{playerId}/activate")
     @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
     public void activatePlayer(@PathVariable int playerId, @RequestBody Optional<ActivateUser> activateUser) {
@@ -73,8 +162,8 @@ public class PlayerController {
 
     @PostMapping("/v2/players/update-ranking")
     @Parameter(name = "x-api-key", required = true, example = "sample-api-key", in = ParameterIn.HEADER)
-    public List<Player> updateRanking() {
-        return playerService.updatePlayerRanking();
+    public List<LeaderboardEntry> updateRanking() {
+        return playerService.resyncPlayerRanking();
     }
 
     @PostMapping("/v2/players")
@@ -1,7 +1,7 @@
 package com.brs.backend.core;
 
+import com.brs.backend.dto.PlayerStatus;
 import com.brs.backend.model.Player;
-import com.brs.backend.model.ScoreHistory;
 import com.brs.backend.repositories.EncounterRepository;
 import com.brs.backend.repositories.ScoreHistoryRepository;
 import lombok.RequiredArgsConstructor;
@@ -10,8 +10,9 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.brs.backend.common.Constants.*;
 
@@ -20,47 +21,72 @@ import static com.brs.backend.common.Constants.*;
 @Slf4j
 public class CommonAbsenteeManager {
 
+    // A player whose last game is older than this many game days before the latest one is deactivated
+    private static final int ACTIVE_GAME_DAYS = 6;
+
     private final ScorePersister scorePersister;
 
     private final EncounterRepository encounterRepository;
 
     private final ScoreHistoryRepository scoreHistoryRepository;
 
+    private final InactivityDecay inactivityDecay;
+
+    /**
+     * Deducts or deactivates the absentees with bulk updates and batched history inserts.
+     */
     public void calculateAbsenteeScoreAndPersist(List<Player> players) {
+        RatingTable ratingTable = RatingTable.load(players);
+        calculateAbsenteeScore(players, ratingTable, LocalDate.now());
+        scorePersister.flush(ratingTable);
+    }
+
+    public void calculateAbsenteeScore(List<Player> players, RatingTable ratingTable, LocalDate processingDate) {
         var absentees = new ArrayList<Player>();
         var longTermAbsentees = new ArrayList<Player>();
-        var encountersDates = encounterRepository.findAllDistinctEncounterDateOrdered();
-        if (encountersDates.size() <= 6) {
+        if (inactivityDecay.isLazy()) {
+            // Absentees cost nothing until they are deactivated, their pending demerits are written right before
+            var enabledPlayers = players.stream()
+                    .filter(player -> ratingTable.getStatus(player.getId()) != PlayerStatus.DISABLED)
+                    .toList();
+            classifyAbsentees(enabledPlayers, processingDate, absentees, longTermAbsentees);
+            InactivityDecay.Snapshot decay = inactivityDecay.load();
+            longTermAbsentees.forEach(player -> {
+                decay.materialize(ratingTable, player.getId(), processingDate);
+                ratingTable.deactivate(player.getId(), DISABLE_PLAYER_ENCOUNTER_ID, processingDate);
+            });
+            return;
+        }
+        classifyAbsentees(players, processingDate, absentees, longTermAbsentees);
+        absentees.forEach(player -> ratingTable.applyScore(player.getId(), DEMERIT_POINTS_ABSENTEE, ABSENTEE_ENCOUNTER_ID, processingDate));
+        longTermAbsentees.forEach(player -> ratingTable.deactivate(player.getId(), DISABLE_PLAYER_ENCOUNTER_ID, processingDate));
+    }
+
+    /**
+     * Classifies all players with two queries : the cut over game day and the last game day of every player.
+     * Only game days up to the processing date count, so backfilling old dates does not see the later ones.
+     */
+    private void classifyAbsentees(List<Player> players, LocalDate processingDate, List<Player> absentees, List<Player> longTermAbsentees) {
+        var cutOverDate = encounterRepository.findDistinctEncounterDateUpTo(processingDate, ACTIVE_GAME_DAYS);
+        if (cutOverDate.isEmpty()) {
             log.info("There are not enough encounters played to disable players");
-            deductPointsForAbsentees(players);
+            absentees.addAll(players);
             return;
         }
-        var cutOverDate = encountersDates.get(6);
+        Map<Integer, LocalDate> lastActiveDates = new HashMap<>();
+        for (var lastActiveDate : scoreHistoryRepository.findPlayerLastActiveDates()) {
+            lastActiveDates.put(lastActiveDate.getPlayerId(), lastActiveDate.getLastActiveDate());
+        }
         for (Player player : players) {
-            var games = scoreHistoryRepository.findAllByPlayerId(player.getId());
-            var lastActiveGame = games.stream().filter(g -> g.getEncounterId() > 0).max(Comparator.comparing(ScoreHistory::getEncounterDate));
-            if(lastActiveGame.isEmpty()) {
+            var lastActiveGameDate = lastActiveDates.get(player.getId());
+            if (lastActiveGameDate == null) {
                 continue;
             }
-            var lastActiveGameDate = lastActiveGame.get().getEncounterDate();
-            if (lastActiveGameDate.isBefore(cutOverDate)) {
+            if (lastActiveGameDate.isBefore(cutOverDate.get())) {
                 longTermAbsentees.add(player);
             } else {
                 absentees.add(player);
             }
         }
-        deductPointsForAbsentees(absentees);
-        deactivateLongTermAbsentees(longTermAbsentees);
-    }
-
-    public void deactivateLongTermAbsentees(ArrayList<Player> longTermAbsentees) {
-        longTermAbsentees.forEach(player -> scorePersister.deactivatePlayer(player, DISABLE_PLAYER_ENCOUNTER_ID, LocalDate.now()));
-    }
-
-    private void deductPointsForAbsentees(List<Player> players) {
-        for (Player player : players) {
-            scorePersister.updatePlayer(DEMERIT_POINTS_ABSENTEE, ABSENTEE_ENCOUNTER_ID, LocalDate.now(), player);
-        }
     }
-
 }
@@ -10,14 +10,17 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
-@Component
+@Component(EloRankScoreCalculator.NAME)
 @RequiredArgsConstructor
 public class EloRankScoreCalculator implements RankScoreCalculator {
 
+    public static final String NAME = "elo";
+
     private final PlayerUtil playerUtil;
 
     private final ScorePersister scorePersister;
@@ -36,11 +39,7 @@ public class EloRankScoreCalculator implements RankScoreCalculator {
         double team2AverageRankScore = getTeamAverageRankScore(team2Players);
 
 
-        double team1WinExpected = 1 / (1 + Math.pow(10, ((team2AverageRankScore - team1AverageRankScore) / 480)));
-        double team1WinActual = encounter.getTeam1SetPoints() > encounter.getTeam2SetPoints() ? 1 : 0;
-
-        // K value lowered to 20 from 40 in Sep, 2024
-        double team1Score = BigDecimal.valueOf(20 * (team1WinActual - team1WinExpected)).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        double team1Score = calculateTeam1Score(team1AverageRankScore, team2AverageRankScore, encounter);
         double team2Score = -1 * team1Score;
 
         scorePersister.persistScores(encounter.getId(), team1Score, team2Score);
@@ -54,6 +53,53 @@ public class EloRankScoreCalculator implements RankScoreCalculator {
         commonAbsenteeManager.calculateAbsenteeScoreAndPersist(players);
     }
 
+    @Override
+    public void calculate(Encounter encounter, RatingTable ratingTable) {
+        int[] team1PlayerIds = playerUtil.getPlayerIdsByIdsString(encounter.getTeam1());
+        int[] team2PlayerIds = playerUtil.getPlayerIdsByIdsString(encounter.getTeam2());
+
+        double team1Score = calculateTeam1Score(ratingTable.getTeamAverageScore(team1PlayerIds),
+                ratingTable.getTeamAverageScore(team2PlayerIds), encounter);
+        double team2Score = -1 * team1Score;
+
+        ratingTable.markEncounterProcessed(encounter, Math.abs(team1Score));
+
+        applyTeamScore(ratingTable, team1PlayerIds, team1Score, encounter);
+        applyTeamScore(ratingTable, team2PlayerIds, team2Score, encounter);
+    }
+
+    @Override
+    public void calculateAbsenteeScore(List<Player> players, RatingTable ratingTable, LocalDate processingDate) {
+        commonAbsenteeManager.calculateAbsenteeScore(players, ratingTable, processingDate);
+    }
+
+    public static double calculateTeam1Score(double team1AverageRankScore, double team2AverageRankScore, Encounter encounter) {
+        return calculateTeam1Score(team1AverageRankScore, team2AverageRankScore,
+                encounter.getTeam1SetPoints(), encounter.getTeam2SetPoints());
+    }
+
+    public static double calculateTeam1Score(double team1AverageRankScore, double team2AverageRankScore,
+                                             int team1SetPoints, int team2SetPoints) {
+        double team1WinExpected = expectedScore(team1AverageRankScore, team2AverageRankScore);
+        double team1WinActual = team1SetPoints > team2SetPoints ? 1 : 0;
+
+        // K value lowered to 20 from 40 in Sep, 2024
+        return BigDecimal.valueOf(20 * (team1WinActual - team1WinExpected)).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    public static double expectedScore(double rankScore, double opponentRankScore) {
+        return 1 / (1 + Math.pow(10, ((opponentRankScore - rankScore) / 480)));
+    }
+
+    private void applyTeamScore(RatingTable ratingTable, int[] playerIds, double teamScore, Encounter encounter) {
+        for (int playerId : playerIds) {
+            ratingTable.applyScore(playerId, teamScore, encounter.getId(), encounter.getEncounterDate());
+            if (!ratingTable.isActive(playerId)) {
+                ratingTable.setStatus(playerId, PlayerStatus.ACTIVE);
+            }
+        }
+    }
+
     private double getTeamAverageRankScore(List<Player> team1Players) {
         return team1Players
                 .stream()
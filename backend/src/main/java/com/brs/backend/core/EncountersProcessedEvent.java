@@ -0,0 +1,17 @@
+package com.brs.backend.core;
+
+import java.util.List;
+
+/**
+ * Published for every batch of encounters whose score was calculated and persisted.
+ */
+public record EncountersProcessedEvent(List<ProcessedEncounter> encounters) {
+
+    public record ProcessedEncounter(int encounterId, int[] team1, int[] team2, int team1SetPoints,
+                                     int team2SetPoints, double calculatedScore) {
+
+        public boolean isTeam1Winner() {
+            return team1SetPoints > team2SetPoints;
+        }
+    }
+}
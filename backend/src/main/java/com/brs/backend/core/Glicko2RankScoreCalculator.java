@@ -0,0 +1,319 @@
+package com.brs.backend.core;
+
+import com.brs.backend.dto.PlayerStatus;
+import com.brs.backend.model.Encounter;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.PlayerRatingRepository;
+import com.brs.backend.repositories.PlayerRatingRepository.RatingState;
+import com.brs.backend.repositories.PlayerRepository;
+import com.brs.backend.util.PlayerUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Glicko-2 rating model treating every game day as one rating period.
+ * <p>
+ * Doubles are rated player by player against a composite opponent : the mean rating and the root mean square
+ * deviation of the opposing team. All encounters of the period are folded into per-player accumulators in one pass
+ * over primitive arrays, then every rating, deviation and volatility is updated in a second pass.
+ * <p>
+ * As the primary calculator the rating lives in {@code rank_score} and the period's rating change is split over the
+ * player's encounters of the day. In shadow mode only PLAYER_RATING and PLAYER_RATING_HISTORY are written.
+ */
+@Component(Glicko2RankScoreCalculator.NAME)
+@RequiredArgsConstructor
+@Slf4j
+public class Glicko2RankScoreCalculator implements RankScoreCalculator, ShadowRatingModel {
+
+    public static final String NAME = "glicko2";
+
+    // Conversion factor between the Glicko and the Glicko-2 scale
+    private static final double SCALE = 173.7178;
+    private static final double CENTER = 1500;
+    private static final double DEFAULT_RATING_DEVIATION = 350;
+    private static final double DEFAULT_VOLATILITY = 0.06;
+    // System constant constraining the change in volatility over time
+    private static final double TAU = 0.5;
+    private static final double CONVERGENCE_TOLERANCE = 0.000001;
+
+    private final PlayerRepository playerRepository;
+
+    private final PlayerRatingRepository playerRatingRepository;
+
+    private final CommonAbsenteeManager commonAbsenteeManager;
+
+    private final ScorePersister scorePersister;
+
+    private final PlayerUtil playerUtil;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void calculateAndPersist(Encounter encounter) {
+        RatingTable ratingTable = RatingTable.load(playerRepository.findAll());
+        calculate(encounter, ratingTable);
+        scorePersister.flush(ratingTable);
+    }
+
+    @Override
+    public void calculateAbsenteeScoreAndPersist(List<Player> players) {
+        commonAbsenteeManager.calculateAbsenteeScoreAndPersist(players);
+    }
+
+    @Override
+    public void calculate(Encounter encounter, RatingTable ratingTable) {
+        calculatePeriod(encounter.getEncounterDate(), List.of(encounter), ratingTable);
+    }
+
+    @Override
+    public void calculateAbsenteeScore(List<Player> players, RatingTable ratingTable, LocalDate processingDate) {
+        commonAbsenteeManager.calculateAbsenteeScore(players, ratingTable, processingDate);
+    }
+
+    @Override
+    public void calculatePeriod(LocalDate periodDate, List<Encounter> encounters, RatingTable ratingTable) {
+        Map<Integer, RatingState> states = playerRatingRepository.findRatings(NAME, DEFAULT_RATING_DEVIATION, DEFAULT_VOLATILITY);
+        Period period = new Period(encounters, states);
+        for (Integer playerId : states.keySet()) {
+            if (ratingTable.contains(playerId)) {
+                period.rating[playerId] = ratingTable.getScore(playerId);
+            }
+        }
+        period.rate();
+
+        for (int e = 0; e < period.encounterCount; e++) {
+            Encounter encounter = encounters.get(e);
+            double team1Change = 0;
+            for (int slot = period.slotStart[e]; slot < period.slotStart[e + 1]; slot++) {
+                int playerId = period.slotPlayer[slot];
+                double change = period.slotRatingChange(slot);
+                ratingTable.applyScore(playerId, change, encounter.getId(), encounter.getEncounterDate());
+                if (!ratingTable.isActive(playerId)) {
+                    ratingTable.setStatus(playerId, PlayerStatus.ACTIVE);
+                }
+                if (period.slotTeam1[slot]) {
+                    team1Change += change / period.team1Size[e];
+                }
+            }
+            ratingTable.markEncounterProcessed(encounter, Math.abs(team1Change));
+        }
+        List<RatingState> newStates = period.toStates(states);
+        ratingTable.onFlush(() -> playerRatingRepository.saveRatings(NAME, periodDate, newStates));
+    }
+
+    @Override
+    public void ratePeriod(LocalDate periodDate, List<Encounter> encounters) {
+        Map<Integer, RatingState> states = playerRatingRepository.findRatings(NAME, DEFAULT_RATING_DEVIATION, DEFAULT_VOLATILITY);
+        Period period = new Period(encounters, states);
+        period.rate();
+        playerRatingRepository.saveRatings(NAME, periodDate, period.toStates(states));
+        log.info("Shadow rated {} encounters for period {}", encounters.size(), periodDate);
+    }
+
+    /**
+     * One rating period laid out as primitive arrays : player state indexed by player id and one slot per player
+     * per encounter.
+     */
+    private final class Period {
+
+        private final List<Encounter> encounters;
+        private final int encounterCount;
+        private final double[] rating;
+        private final double[] deviation;
+        private final double[] volatility;
+        private final double[] newDeviation;
+
+        private final int[] slotStart;
+        private final int[] slotPlayer;
+        private final boolean[] slotTeam1;
+        private final int[] team1Size;
+        // g(opponent deviation) * (actual - expected) of every slot, on the Glicko-2 scale
+        private final double[] slotSurprise;
+
+        private final double[] varianceInverse;
+        private final double[] surpriseSum;
+        private final boolean[] played;
+
+        private Period(List<Encounter> encounters, Map<Integer, RatingState> states) {
+            this.encounters = encounters;
+            encounterCount = encounters.size();
+            int[][] team1Ids = new int[encounterCount][];
+            int[][] team2Ids = new int[encounterCount][];
+            int maxId = states.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            slotStart = new int[encounterCount + 1];
+            team1Size = new int[encounterCount];
+            for (int e = 0; e < encounterCount; e++) {
+                team1Ids[e] = playerUtil.getPlayerIdsByIdsString(encounters.get(e).getTeam1());
+                team2Ids[e] = playerUtil.getPlayerIdsByIdsString(encounters.get(e).getTeam2());
+                team1Size[e] = team1Ids[e].length;
+                slotStart[e + 1] = slotStart[e] + team1Ids[e].length + team2Ids[e].length;
+                for (int id : team1Ids[e]) {
+                    maxId = Math.max(maxId, id);
+                }
+                for (int id : team2Ids[e]) {
+                    maxId = Math.max(maxId, id);
+                }
+            }
+
+            rating = new double[maxId + 1];
+            deviation = new double[maxId + 1];
+            volatility = new double[maxId + 1];
+            newDeviation = new double[maxId + 1];
+            varianceInverse = new double[maxId + 1];
+            surpriseSum = new double[maxId + 1];
+            played = new boolean[maxId + 1];
+            for (int id = 0; id <= maxId; id++) {
+                RatingState state = states.get(id);
+                rating[id] = state == null ? CENTER : state.rating();
+                deviation[id] = state == null ? DEFAULT_RATING_DEVIATION : state.ratingDeviation();
+                volatility[id] = state == null ? DEFAULT_VOLATILITY : state.volatility();
+            }
+
+            int slots = slotStart[encounterCount];
+            slotPlayer = new int[slots];
+            slotTeam1 = new boolean[slots];
+            slotSurprise = new double[slots];
+            for (int e = 0; e < encounterCount; e++) {
+                int slot = slotStart[e];
+                for (int id : team1Ids[e]) {
+                    slotPlayer[slot] = id;
+                    slotTeam1[slot++] = true;
+                }
+                for (int id : team2Ids[e]) {
+                    slotPlayer[slot++] = id;
+                }
+            }
+        }
+
+        private void rate() {
+            // First pass : accumulate variance and surprise of every player against the composite opponents
+            for (int e = 0; e < encounterCount; e++) {
+                Encounter encounter = encounters.get(e);
+                double team1Actual = encounter.getTeam1SetPoints() > encounter.getTeam2SetPoints() ? 1 : 0;
+                double[] team1Composite = composite(e, true);
+                double[] team2Composite = composite(e, false);
+                for (int slot = slotStart[e]; slot < slotStart[e + 1]; slot++) {
+                    int playerId = slotPlayer[slot];
+                    double[] opponent = slotTeam1[slot] ? team2Composite : team1Composite;
+                    double actual = slotTeam1[slot] ? team1Actual : 1 - team1Actual;
+                    double mu = (rating[playerId] - CENTER) / SCALE;
+                    double g = g(opponent[1]);
+                    double expected = 1 / (1 + Math.exp(-g * (mu - opponent[0])));
+                    varianceInverse[playerId] += g * g * expected * (1 - expected);
+                    slotSurprise[slot] = g * (actual - expected);
+                    surpriseSum[playerId] += slotSurprise[slot];
+                    played[playerId] = true;
+                }
+            }
+
+            // Second pass : new deviation and volatility of every player, rating moves are derived per slot
+            for (int playerId = 0; playerId < rating.length; playerId++) {
+                double phi = deviation[playerId] / SCALE;
+                if (!played[playerId]) {
+                    double phiStar = Math.sqrt(phi * phi + volatility[playerId] * volatility[playerId]);
+                    newDeviation[playerId] = Math.min(phiStar * SCALE, DEFAULT_RATING_DEVIATION);
+                    continue;
+                }
+                double variance = 1 / varianceInverse[playerId];
+                double delta = variance * surpriseSum[playerId];
+                volatility[playerId] = newVolatility(phi, volatility[playerId], variance, delta);
+                double phiStar = Math.sqrt(phi * phi + volatility[playerId] * volatility[playerId]);
+                newDeviation[playerId] = SCALE / Math.sqrt(1 / (phiStar * phiStar) + 1 / variance);
+            }
+        }
+
+        /**
+         * Rating change of the slot's player caused by that encounter. The slot changes of a player sum up to the
+         * player's rating change over the period.
+         */
+        private double slotRatingChange(int slot) {
+            double phiNew = newDeviation[slotPlayer[slot]] / SCALE;
+            return phiNew * phiNew * slotSurprise[slot] * SCALE;
+        }
+
+        private List<RatingState> toStates(Map<Integer, RatingState> states) {
+            double[] newRating = rating.clone();
+            for (int slot = 0; slot < slotPlayer.length; slot++) {
+                newRating[slotPlayer[slot]] += slotRatingChange(slot);
+            }
+            var result = new ArrayList<RatingState>();
+            for (int playerId = 0; playerId < rating.length; playerId++) {
+                if (played[playerId] || states.containsKey(playerId)) {
+                    result.add(new RatingState(playerId, newRating[playerId], newDeviation[playerId], volatility[playerId]));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Mean rating and root mean square deviation of one side of the encounter, on the Glicko-2 scale.
+         */
+        private double[] composite(int encounter, boolean team1) {
+            double muSum = 0;
+            double phiSquareSum = 0;
+            int size = 0;
+            for (int slot = slotStart[encounter]; slot < slotStart[encounter + 1]; slot++) {
+                if (slotTeam1[slot] == team1) {
+                    int playerId = slotPlayer[slot];
+                    double phi = deviation[playerId] / SCALE;
+                    muSum += (rating[playerId] - CENTER) / SCALE;
+                    phiSquareSum += phi * phi;
+                    size++;
+                }
+            }
+            return new double[]{muSum / size, Math.sqrt(phiSquareSum / size)};
+        }
+    }
+
+    private static double g(double phi) {
+        return 1 / Math.sqrt(1 + 3 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    /**
+     * Volatility update of the Glicko-2 paper, step 5, solved with the Illinois algorithm.
+     */
+    private static double newVolatility(double phi, double sigma, double variance, double delta) {
+        double a = Math.log(sigma * sigma);
+        double upperA = a;
+        double upperB;
+        if (delta * delta > phi * phi + variance) {
+            upperB = Math.log(delta * delta - phi * phi - variance);
+        } else {
+            int k = 1;
+            while (volatilityFunction(a - k * TAU, a, phi, variance, delta) < 0) {
+                k++;
+            }
+            upperB = a - k * TAU;
+        }
+        double fA = volatilityFunction(upperA, a, phi, variance, delta);
+        double fB = volatilityFunction(upperB, a, phi, variance, delta);
+        while (Math.abs(upperB - upperA) > CONVERGENCE_TOLERANCE) {
+            double upperC = upperA + (upperA - upperB) * fA / (fB - fA);
+            double fC = volatilityFunction(upperC, a, phi, variance, delta);
+            if (fC * fB <= 0) {
+                upperA = upperB;
+                fA = fB;
+            } else {
+                fA = fA / 2;
+            }
+            upperB = upperC;
+            fB = fC;
+        }
+        return Math.exp(upperA / 2);
+    }
+
+    private static double volatilityFunction(double x, double a, double phi, double variance, double delta) {
+        double ex = Math.exp(x);
+        double denominator = phi * phi + variance + ex;
+        return ex * (delta * delta - phi * phi - variance - ex) / (2 * denominator * denominator) - (x - a) / (TAU * TAU);
+    }
+}
@@ -0,0 +1,162 @@
+package com.brs.backend.core;
+
+import com.brs.backend.repositories.EncounterParticipantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sorted encounter id lists of every player, one per side of the net, over all processed encounters.
+ * <p>
+ * Encounters where given players played together, against each other or both are found by intersecting those lists,
+ * so the answer costs a few linear merges of primitive arrays and no encounter is read before it is known to match.
+ * The lists are rebuilt with one query after every committed rating update. A load that was already running when
+ * the update committed is used by its reader but not kept, as it may predate the update.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HeadToHeadIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final EncounterParticipantRepository encounterParticipantRepository;
+
+    // encounterIds[side][playerId], side 0 is team 1 and side 1 is team 2
+    private volatile int[][][] encounterIds;
+
+    // Counts the committed rating updates, a load is only kept when none committed while it ran
+    private final AtomicLong generation = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onRatingsUpdated(RatingsUpdatedEvent event) {
+        generation.incrementAndGet();
+        encounterIds = null;
+    }
+
+    /**
+     * Returns the sorted ids of the encounters where every one of {@code team} played on one side and every one of
+     * {@code opponents} on the other side. The first player of the team is mandatory, the other lists may be empty.
+     */
+    public int[] findEncounters(int[] team, int[] opponents) {
+        int[][][] index = getIndex();
+        int[] onTeam1 = intersectSide(index, 0, team, opponents);
+        int[] onTeam2 = intersectSide(index, 1, team, opponents);
+        return union(onTeam1, onTeam2);
+    }
+
+    private static int[] intersectSide(int[][][] index, int side, int[] team, int[] opponents) {
+        int[] result = encountersOf(index, side, team[0]);
+        for (int i = 1; i < team.length && result.length > 0; i++) {
+            result = intersect(result, encountersOf(index, side, team[i]));
+        }
+        for (int i = 0; i < opponents.length && result.length > 0; i++) {
+            result = intersect(result, encountersOf(index, 1 - side, opponents[i]));
+        }
+        return result;
+    }
+
+    private static int[] encountersOf(int[][][] index, int side, int playerId) {
+        int[][] bySide = index[side];
+        return playerId >= 0 && playerId < bySide.length && bySide[playerId] != null ? bySide[playerId] : NONE;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        // A player is on one side of an encounter only, so both lists are disjoint
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length || j < b.length) {
+            result[count++] = j >= b.length || (i < a.length && a[i] < b[j]) ? a[i++] : b[j++];
+        }
+        return result;
+    }
+
+    private int[][][] getIndex() {
+        int[][][] current = encounterIds;
+        if (current == null) {
+            long loadGeneration = generation.get();
+            current = load();
+            publish(loadGeneration, current);
+        }
+        return current;
+    }
+
+    private synchronized void publish(long loadGeneration, int[][][] index) {
+        if (generation.get() == loadGeneration) {
+            encounterIds = index;
+        }
+    }
+
+    private int[][][] load() {
+        long startedAt = System.currentTimeMillis();
+        var builder = new Builder();
+        encounterParticipantRepository.streamProcessedParticipants(rs -> builder.add(rs.getInt(1), rs.getInt(2), rs.getInt(3)));
+        int[][][] index = builder.build();
+        log.info("Loaded the head to head index in {} ms", System.currentTimeMillis() - startedAt);
+        return index;
+    }
+
+    /**
+     * Collects rows ordered by player, side and encounter id into one array per player and side.
+     */
+    private static final class Builder {
+
+        private int[][][] lists = new int[2][16][];
+        private int currentPlayerId = -1;
+        private int currentSide = -1;
+        private int[] buffer = new int[64];
+        private int size;
+
+        private void add(int playerId, int teamNo, int encounterId) {
+            int side = teamNo - 1;
+            if (playerId != currentPlayerId || side != currentSide) {
+                finishList();
+                currentPlayerId = playerId;
+                currentSide = side;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = encounterId;
+        }
+
+        private void finishList() {
+            if (currentPlayerId < 0) {
+                return;
+            }
+            if (currentPlayerId >= lists[currentSide].length) {
+                int capacity = Math.max(currentPlayerId + 1, lists[currentSide].length * 2);
+                lists[0] = Arrays.copyOf(lists[0], capacity);
+                lists[1] = Arrays.copyOf(lists[1], capacity);
+            }
+            lists[currentSide][currentPlayerId] = Arrays.copyOf(buffer, size);
+            size = 0;
+        }
+
+        private int[][][] build() {
+            finishList();
+            return lists;
+        }
+    }
+}
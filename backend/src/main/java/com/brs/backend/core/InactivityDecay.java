@@ -0,0 +1,190 @@
+package com.brs.backend.core;
+
+import com.brs.backend.dto.PlayerStatus;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.EncounterRepository;
+import com.brs.backend.repositories.ScoreHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.brs.backend.common.Constants.ABSENTEE_ENCOUNTER_ID;
+import static com.brs.backend.common.Constants.DEMERIT_POINTS_ABSENTEE;
+
+/**
+ * Absentee demerits of the lazy decay mode.
+ * <p>
+ * In the default eager mode every processed date writes a demerit row and a score update for each absent player. In
+ * lazy mode nothing is written for absentees : a player's stored score is the score as of their latest history row,
+ * and every processed game day since then counts as one demerit. The demerits are added on read, and written as a
+ * single row once the player plays again or is deactivated.
+ * <p>
+ * Switching back to eager mode leaves those demerits unwritten, they are written once on the next start in eager mode
+ * with {@link #loadLeftover()}.
+ */
+@Component
+@RequiredArgsConstructor
+public class InactivityDecay {
+
+    public enum Mode {
+        // A demerit row per absent player and processed date
+        EAGER,
+        // Demerits derived from the processed game days since the player's latest history row
+        LAZY,
+    }
+
+    private final EncounterRepository encounterRepository;
+
+    private final ScoreHistoryRepository scoreHistoryRepository;
+
+    @Value("${rating.inactivity-decay:eager}")
+    private Mode mode;
+
+    public boolean isLazy() {
+        return mode == Mode.LAZY;
+    }
+
+    /**
+     * Reads the processed game days and the date every player was last scored, two queries in lazy mode and none
+     * in eager mode, where the snapshot never adds anything.
+     */
+    public Snapshot load() {
+        if (!isLazy()) {
+            return Snapshot.NONE;
+        }
+        return read();
+    }
+
+    /**
+     * Reads the pending demerits whatever the mode, for the ones left over by an earlier run in lazy mode. Eager
+     * processing writes a row dated on or after the game day for every absentee who ever played, and players who
+     * never played are not counted, so in eager mode only those left over can be pending.
+     */
+    public Snapshot loadLeftover() {
+        return read();
+    }
+
+    private Snapshot read() {
+        Map<Integer, LocalDate> scoredUntil = new HashMap<>();
+        scoreHistoryRepository.findPlayerLastScoredDates()
+                .forEach(r -> scoredUntil.put(r.getPlayerId(), r.getLastActiveDate()));
+        return new Snapshot(encounterRepository.findAllDistinctProcessedEncounterDateOrdered(), scoredUntil);
+    }
+
+    public static final class Snapshot {
+
+        private static final Snapshot NONE = new Snapshot(List.of(), Map.of());
+
+        private final List<LocalDate> gameDays;
+
+        private final Map<Integer, LocalDate> scoredUntil;
+
+        private Snapshot(List<LocalDate> gameDays, Map<Integer, LocalDate> scoredUntil) {
+            this.gameDays = gameDays;
+            this.scoredUntil = scoredUntil;
+        }
+
+        /**
+         * Counts the processed game days after the player's latest history row and before the given date, or up to
+         * the latest game day when the date is null.
+         */
+        public int getPendingGameDays(int playerId, LocalDate before) {
+            LocalDate since = scoredUntil.get(playerId);
+            if (since == null) {
+                return 0;
+            }
+            int from = indexAfter(since);
+            int to = before == null ? gameDays.size() : indexOf(before);
+            return Math.max(0, to - from);
+        }
+
+        /**
+         * Same snapshot once the date is processed : the date counts as one more game day and the given players are
+         * scored on it. Used to rank a simulated date the way processing it would.
+         */
+        public Snapshot afterGameDay(LocalDate date, Collection<Integer> scoredPlayerIds) {
+            if (this == NONE) {
+                return NONE;
+            }
+            List<LocalDate> days = new ArrayList<>(gameDays);
+            int index = Collections.binarySearch(days, date);
+            if (index < 0) {
+                days.add(-index - 1, date);
+            }
+            Map<Integer, LocalDate> scored = new HashMap<>(scoredUntil);
+            scoredPlayerIds.forEach(playerId -> scored.merge(playerId, date, (a, b) -> a.isAfter(b) ? a : b));
+            return new Snapshot(days, scored);
+        }
+
+        /**
+         * The score the player would have with every pending demerit written. Disabled players do not decay.
+         */
+        public double getEffectiveScore(Player player) {
+            if (player.isDisabled()) {
+                return player.getRankScore();
+            }
+            return player.getRankScore() + DEMERIT_POINTS_ABSENTEE * getPendingGameDays(player.getId(), null);
+        }
+
+        /**
+         * Same as {@link #getEffectiveScore(Player)} for a player of the table, with the score and status it holds.
+         */
+        public double getEffectiveScore(RatingTable ratingTable, int playerId) {
+            if (ratingTable.getStatus(playerId) == PlayerStatus.DISABLED) {
+                return ratingTable.getScore(playerId);
+            }
+            return ratingTable.getScore(playerId) + DEMERIT_POINTS_ABSENTEE * getPendingGameDays(playerId, null);
+        }
+
+        /**
+         * Writes every pending demerit into the table, as one absentee row per player dated on the latest game day.
+         * Those rows leave nothing pending, so running it again charges nobody. Returns the number of players charged.
+         */
+        public int materializeAll(RatingTable ratingTable) {
+            int charged = 0;
+            for (Player player : ratingTable.getPlayers()) {
+                int playerId = player.getId();
+                int pending = getPendingGameDays(playerId, null);
+                if (pending > 0 && ratingTable.getStatus(playerId) != PlayerStatus.DISABLED) {
+                    ratingTable.applyScore(playerId, DEMERIT_POINTS_ABSENTEE * pending, ABSENTEE_ENCOUNTER_ID, gameDays.getLast());
+                    charged++;
+                }
+            }
+            return charged;
+        }
+
+        /**
+         * Writes the demerits of the game days the player missed before the date into the table, as one absentee row
+         * of that date.
+         */
+        public void materialize(RatingTable ratingTable, int playerId, LocalDate date) {
+            if (!ratingTable.contains(playerId) || ratingTable.getStatus(playerId) == PlayerStatus.DISABLED) {
+                return;
+            }
+            int pending = getPendingGameDays(playerId, date);
+            if (pending > 0) {
+                ratingTable.applyScore(playerId, DEMERIT_POINTS_ABSENTEE * pending, ABSENTEE_ENCOUNTER_ID, date);
+            }
+        }
+
+        // First position holding a game day after the date
+        private int indexAfter(LocalDate date) {
+            int index = Collections.binarySearch(gameDays, date);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        // First position holding the date or a later game day
+        private int indexOf(LocalDate date) {
+            int index = Collections.binarySearch(gameDays, date);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.brs.backend.core;
+
+import com.brs.backend.common.AfterCommit;
+import com.brs.backend.dto.LeaderboardEntry;
+import com.brs.backend.model.Player;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * In-memory order statistics index of the active players, kept in ranking order : score descending, then the rank
+ * the player held when the ranking was last committed, then id.
+ * <p>
+ * The index is a treap with subtree sizes, so a score change is a remove and insert in O(log n), and the live rank of
+ * a player or the top K are answered without sorting. {@link #commitRanks(LocalDate)} walks the index once and
+ * reports only the players whose rank or highest rank moved, which is all that has to be written.
+ * <p>
+ * The index is loaded lazily from the players and dropped whenever a change bypassed it or the transaction
+ * that fed it rolled back, so it is rebuilt from the database on next use. A change that bypassed it drops it again
+ * once committed, as a concurrent reader may have loaded the old scores in between.
+ */
+@Component
+public class LeaderboardIndex {
+
+    private static final int NO_HIGHEST_RANK = Integer.MAX_VALUE;
+
+    public record RankChange(int playerId, int rank, int highestRank, LocalDate rankSince) {
+    }
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    private Map<Integer, Node> nodes;
+
+    private Node root;
+
+    public synchronized boolean isLoaded() {
+        return nodes != null;
+    }
+
+    public synchronized void load(Collection<Player> players) {
+        load(players, Player::getRankScore);
+    }
+
+    /**
+     * Loads the active players ordered by the given score instead of their stored one.
+     */
+    public synchronized void load(Collection<Player> players, ToDoubleFunction<Player> scoreFunction) {
+        nodes = new HashMap<>();
+        root = null;
+        for (Player player : players) {
+            if (player.isActive()) {
+                insert(new Node(player, scoreFunction.applyAsDouble(player), random.nextInt()));
+            }
+        }
+    }
+
+    /**
+     * Drops the index right away and again once the transaction committed, so a load that read the players before
+     * the commit is not kept.
+     */
+    public synchronized void invalidate() {
+        clear();
+        AfterCommit.run(this::clear);
+    }
+
+    private synchronized void clear() {
+        nodes = null;
+        root = null;
+    }
+
+    /**
+     * Re-positions the player on the given score after a change of score or status. Players who are no longer active
+     * leave the index.
+     */
+    public synchronized void update(Player player, double score) {
+        if (nodes == null) {
+            return;
+        }
+        invalidateOnRollback();
+        Node node = nodes.get(player.getId());
+        if (node != null) {
+            root = delete(root, node);
+            nodes.remove(node.playerId);
+        }
+        if (!player.isActive()) {
+            return;
+        }
+        Node updated = new Node(player, score, random.nextInt());
+        if (node != null) {
+            // Ties are still broken on the rank the player held before this change
+            updated.tieRank = node.rank;
+            updated.rank = node.rank;
+        }
+        insert(updated);
+    }
+
+    /**
+     * Assigns every active player the rank of their position and returns the players whose rank or highest rank
+     * changed. A better highest rank moves the rank since date to the given date.
+     */
+    public synchronized List<RankChange> commitRanks(LocalDate rankDate) {
+        invalidateOnRollback();
+        var changes = new ArrayList<RankChange>();
+        var stack = new ArrayDeque<Node>();
+        Node node = root;
+        int rank = 0;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            rank++;
+            boolean changed = node.rank != rank;
+            node.rank = rank;
+            node.tieRank = rank;
+            if (rank < node.highestRank) {
+                node.highestRank = rank;
+                node.rankSince = rankDate;
+                changed = true;
+            }
+            if (changed) {
+                changes.add(new RankChange(node.playerId, node.rank, node.highestRank, node.rankSince));
+            }
+            node = node.right;
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the live position of the player, or null when the player is not active.
+     */
+    public synchronized LeaderboardEntry getEntry(int playerId) {
+        Node target = nodes == null ? null : nodes.get(playerId);
+        if (target == null) {
+            return null;
+        }
+        int position = 1;
+        Node node = root;
+        while (node != target) {
+            if (compare(target, node) < 0) {
+                node = node.left;
+            } else {
+                position += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return toEntry(node, position + size(node.left));
+    }
+
+    public synchronized List<LeaderboardEntry> getTop(int limit) {
+        var entries = new ArrayList<LeaderboardEntry>(Math.min(limit, size(root)));
+        var stack = new ArrayDeque<Node>();
+        Node node = root;
+        while ((node != null || !stack.isEmpty()) && entries.size() < limit) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            entries.add(toEntry(node, entries.size() + 1));
+            node = node.right;
+        }
+        return entries;
+    }
+
+    private void invalidateOnRollback() {
+        AfterCommit.onRollback(this::clear);
+    }
+
+    private LeaderboardEntry toEntry(Node node, int position) {
+        return new LeaderboardEntry(node.playerId, node.name, position, node.score);
+    }
+
+    private void insert(Node node) {
+        nodes.put(node.playerId, node);
+        Node[] parts = split(root, node);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    private Node delete(Node current, Node target) {
+        if (current == target) {
+            return merge(current.left, current.right);
+        }
+        if (compare(target, current) < 0) {
+            current.left = delete(current.left, target);
+        } else {
+            current.right = delete(current.right, target);
+        }
+        current.updateSize();
+        return current;
+    }
+
+    // Splits into the nodes ordered before the key and the rest
+    private Node[] split(Node current, Node key) {
+        if (current == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(current, key) < 0) {
+            Node[] parts = split(current.right, key);
+            current.right = parts[0];
+            current.updateSize();
+            return new Node[]{current, parts[1]};
+        }
+        Node[] parts = split(current.left, key);
+        current.left = parts[1];
+        current.updateSize();
+        return new Node[]{parts[0], current};
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.updateSize();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.updateSize();
+        return right;
+    }
+
+    private static int compare(Node a, Node b) {
+        int byScore = Double.compare(b.score, a.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byRank = Integer.compare(a.tieRank, b.tieRank);
+        return byRank != 0 ? byRank : Integer.compare(a.playerId, b.playerId);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final int playerId;
+        private final String name;
+        private final double score;
+        private final int priority;
+        private int tieRank;
+        private int rank;
+        private int highestRank;
+        private LocalDate rankSince;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(Player player, double score, int priority) {
+            this.playerId = player.getId();
+            this.name = player.getName();
+            this.score = score;
+            this.priority = priority;
+            this.rank = player.getPlayerRank() == null ? 0 : player.getPlayerRank();
+            this.tieRank = rank;
+            this.highestRank = player.getHighestRank() == null ? NO_HIGHEST_RANK : player.getHighestRank();
+            this.rankSince = player.getRankSince();
+        }
+
+        private void updateSize() {
+            size = 1 + LeaderboardIndex.size(left) + LeaderboardIndex.size(right);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.brs.backend.core;
+
+import com.brs.backend.common.AfterCommit;
+import com.brs.backend.dto.ExportDataset;
+import com.brs.backend.dto.PairStatistics;
+import com.brs.backend.repositories.ExportRepository;
+import com.brs.backend.util.PlayerUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Partner and opponent statistics of every pair of players : games, wins, set point difference and the sum of the
+ * player's rank score changes, always seen from the row player.
+ * <p>
+ * Each statistic is a packed primitive array indexed by {@code playerId * capacity + otherPlayerId}, so a cell is
+ * one array read. The matrix is built once from all processed encounters and then kept up to date from the
+ * committed {@link EncountersProcessedEvent}s. The ids of the applied encounters are kept, as a load running between
+ * a commit and its event already reads the encounters of that event.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PairStatisticsMatrix {
+
+    private final ExportRepository exportRepository;
+
+    private final PlayerUtil playerUtil;
+
+    private boolean loaded;
+    private int capacity;
+    private Matrix partners;
+    private Matrix opponents;
+    private BitSet appliedEncounters;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEncountersProcessed(EncountersProcessedEvent event) {
+        if (!loaded) {
+            // The full load reads the committed encounters, including these
+            return;
+        }
+        event.encounters().forEach(this::apply);
+    }
+
+    /**
+     * Drops the matrix right away and again once the transaction committed, so a load that read the encounters
+     * before the commit is not kept.
+     */
+    public synchronized void invalidate() {
+        clear();
+        AfterCommit.run(this::clear);
+    }
+
+    private synchronized void clear() {
+        loaded = false;
+        partners = null;
+        opponents = null;
+        appliedEncounters = null;
+    }
+
+    public synchronized PairStatistics getPartnerStatistics(int playerId, int partnerId) {
+        ensureLoaded();
+        return partners.get(playerId, partnerId);
+    }
+
+    public synchronized PairStatistics getOpponentStatistics(int playerId, int opponentId) {
+        ensureLoaded();
+        return opponents.get(playerId, opponentId);
+    }
+
+    public synchronized List<PairStatistics> getPartnerStatistics(int playerId) {
+        ensureLoaded();
+        return partners.row(playerId);
+    }
+
+    public synchronized List<PairStatistics> getOpponentStatistics(int playerId) {
+        ensureLoaded();
+        return opponents.row(playerId);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        capacity = 0;
+        partners = new Matrix();
+        opponents = new Matrix();
+        appliedEncounters = new BitSet();
+        exportRepository.stream(ExportDataset.ENCOUNTERS, null, null, rs -> {
+            if (rs.getBoolean("processed")) {
+                apply(new EncountersProcessedEvent.ProcessedEncounter(rs.getInt("id"),
+                        playerUtil.getPlayerIdsByIdsString(rs.getString("team_1")),
+                        playerUtil.getPlayerIdsByIdsString(rs.getString("team_2")),
+                        rs.getInt("team_1_set_points"), rs.getInt("team_2_set_points"),
+                        rs.getDouble("calculated_score")));
+            }
+        });
+        loaded = true;
+        log.info("Loaded the pair statistics of {} players in {} ms", capacity, System.currentTimeMillis() - startedAt);
+    }
+
+    private void apply(EncountersProcessedEvent.ProcessedEncounter encounter) {
+        if (appliedEncounters.get(encounter.encounterId())) {
+            return;
+        }
+        appliedEncounters.set(encounter.encounterId());
+        ensureCapacity(encounter.team1());
+        ensureCapacity(encounter.team2());
+        boolean team1Won = encounter.isTeam1Winner();
+        int team1SetPointDifference = encounter.team1SetPoints() - encounter.team2SetPoints();
+        double team1Change = team1Won ? encounter.calculatedScore() : -encounter.calculatedScore();
+        applyTeam(encounter.team1(), encounter.team2(), team1Won, team1SetPointDifference, team1Change);
+        applyTeam(encounter.team2(), encounter.team1(), !team1Won, -team1SetPointDifference, -team1Change);
+    }
+
+    private void applyTeam(int[] team, int[] opponentTeam, boolean won, int setPointDifference, double change) {
+        for (int player : team) {
+            for (int partner : team) {
+                if (partner != player) {
+                    partners.add(player * capacity + partner, won, setPointDifference, change);
+                }
+            }
+            for (int opponent : opponentTeam) {
+                opponents.add(player * capacity + opponent, won, setPointDifference, change);
+            }
+        }
+    }
+
+    private void ensureCapacity(int[] playerIds) {
+        int maxId = Arrays.stream(playerIds).max().orElse(0);
+        if (maxId < capacity) {
+            return;
+        }
+        int newCapacity = Math.max(maxId + 1, capacity * 2);
+        partners.resize(capacity, newCapacity);
+        opponents.resize(capacity, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private final class Matrix {
+        private int[] games = new int[0];
+        private int[] wins = new int[0];
+        private int[] setPointDifferences = new int[0];
+        private double[] rankScoreChanges = new double[0];
+
+        private void add(int cell, boolean won, int setPointDifference, double change) {
+            games[cell]++;
+            if (won) {
+                wins[cell]++;
+            }
+            setPointDifferences[cell] += setPointDifference;
+            rankScoreChanges[cell] += change;
+        }
+
+        private PairStatistics get(int playerId, int otherPlayerId) {
+            if (playerId < 0 || otherPlayerId < 0 || playerId >= capacity || otherPlayerId >= capacity) {
+                return new PairStatistics(playerId, otherPlayerId, 0, 0, 0, 0);
+            }
+            int cell = playerId * capacity + otherPlayerId;
+            return new PairStatistics(playerId, otherPlayerId, games[cell], wins[cell], setPointDifferences[cell],
+                    rankScoreChanges[cell]);
+        }
+
+        private List<PairStatistics> row(int playerId) {
+            var row = new ArrayList<PairStatistics>();
+            if (playerId < 0 || playerId >= capacity) {
+                return row;
+            }
+            for (int other = 0; other < capacity; other++) {
+                if (games[playerId * capacity + other] > 0) {
+                    row.add(get(playerId, other));
+                }
+            }
+            row.sort(Comparator.comparingInt(PairStatistics::games).reversed());
+            return row;
+        }
+
+        // Re-packs the rows for the new row length
+        private void resize(int oldCapacity, int newCapacity) {
+            int[] newGames = new int[newCapacity * newCapacity];
+            int[] newWins = new int[newCapacity * newCapacity];
+            int[] newSetPointDifferences = new int[newCapacity * newCapacity];
+            double[] newRankScoreChanges = new double[newCapacity * newCapacity];
+            for (int row = 0; row < oldCapacity; row++) {
+                System.arraycopy(games, row * oldCapacity, newGames, row * newCapacity, oldCapacity);
+                System.arraycopy(wins, row * oldCapacity, newWins, row * newCapacity, oldCapacity);
+                System.arraycopy(setPointDifferences, row * oldCapacity, newSetPointDifferences, row * newCapacity, oldCapacity);
+                System.arraycopy(rankScoreChanges, row * oldCapacity, newRankScoreChanges, row * newCapacity, oldCapacity);
+            }
+            games = newGames;
+            wins = newWins;
+            setPointDifferences = newSetPointDifferences;
+            rankScoreChanges = newRankScoreChanges;
+        }
+    }
+}
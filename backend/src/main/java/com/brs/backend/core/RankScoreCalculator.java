@@ -3,6 +3,7 @@ package com.brs.backend.core;
 import com.brs.backend.model.Encounter;
 import com.brs.backend.model.Player;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface RankScoreCalculator {
@@ -10,4 +11,19 @@ public interface RankScoreCalculator {
     void calculateAndPersist(Encounter encounter);
 
     void calculateAbsenteeScoreAndPersist(List<Player> players);
+
+    /**
+     * Applies the encounter result against the in-memory rating table without touching the database.
+     */
+    void calculate(Encounter encounter, RatingTable ratingTable);
+
+    void calculateAbsenteeScore(List<Player> players, RatingTable ratingTable, LocalDate processingDate);
+
+    /**
+     * Applies every encounter of a game day against the rating table. Calculators that rate a whole period at once
+     * override this, the default applies the encounters one after the other.
+     */
+    default void calculatePeriod(LocalDate periodDate, List<Encounter> encounters, RatingTable ratingTable) {
+        encounters.forEach(encounter -> calculate(encounter, ratingTable));
+    }
 }
@@ -1,15 +1,66 @@
 package com.brs.backend.core;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the available rating algorithms, keyed by bean name. The primary calculator is picked with
+ * {@code rating.algorithm}, and the models listed in {@code rating.shadow-algorithms} run next to it in shadow mode.
+ */
 @Component
+@Slf4j
 public class RankScoreCalculatorProvider {
 
     @Autowired
-    private EloRankScoreCalculator eloRankScoreCalculator;
+    private Map<String, RankScoreCalculator> rankScoreCalculators;
+
+    @Autowired
+    private Map<String, ShadowRatingModel> shadowRatingModels;
+
+    @Value("${rating.algorithm:" + EloRankScoreCalculator.NAME + "}")
+    private String algorithm;
+
+    @Value("${rating.shadow-algorithms:}")
+    private String shadowAlgorithms;
+
+    private RankScoreCalculator rankScoreCalculator;
+
+    private List<ShadowRatingModel> shadowModels;
+
+    @PostConstruct
+    public void init() {
+        rankScoreCalculator = rankScoreCalculators.get(algorithm);
+        if (rankScoreCalculator == null) {
+            throw new IllegalStateException("Unknown rating algorithm '" + algorithm + "', available : " + rankScoreCalculators.keySet());
+        }
+
+        shadowModels = new ArrayList<>();
+        Arrays.stream(shadowAlgorithms.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty() && !name.equals(algorithm))
+                .forEach(name -> {
+                    var model = shadowRatingModels.get(name);
+                    if (model == null) {
+                        throw new IllegalStateException("Unknown shadow rating algorithm '" + name + "', available : " + shadowRatingModels.keySet());
+                    }
+                    shadowModels.add(model);
+                });
+        log.info("Using rating algorithm '{}' with shadow models {}", algorithm, shadowModels.stream().map(ShadowRatingModel::getName).toList());
+    }
 
     public RankScoreCalculator getRankScoreCalculator() {
-        return eloRankScoreCalculator;
+        return rankScoreCalculator;
+    }
+
+    public List<ShadowRatingModel> getShadowModels() {
+        return shadowModels;
     }
 }
@@ -0,0 +1,385 @@
+package com.brs.backend.core;
+
+import com.brs.backend.dto.PlayerStatus;
+import com.brs.backend.dto.ReplayResult;
+import com.brs.backend.dto.ReplayTarget;
+import com.brs.backend.repositories.ReplayRepository;
+import com.brs.backend.repositories.ScoreBatchRepository;
+import com.brs.backend.util.PlayerUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+import static com.brs.backend.common.Constants.*;
+
+/**
+ * Recomputes every player's rating from the raw ENCOUNTER table under the current rules.
+ * <p>
+ * Encounters are streamed in date and id order and applied against primitive arrays indexed by player id. Each game
+ * day is closed the same way processing a date does it : absentee demerits, deactivation of long term absentees and
+ * re-ranking of the active players. History rows are buffered per game day and written in JDBC batches, so memory
+ * stays bounded by the number of players, not the number of encounters.
+ * <p>
+ * Differences from the live pipeline, which depends on manual steps the encounter table does not record :
+ * <ul>
+ *     <li>a player joins the roster with their first encounter</li>
+ *     <li>a disabled player who plays again is re-activated with the default activation score right before
+ *     the encounter</li>
+ *     <li>disabled players are not charged absentee demerits, and absentee rows carry the game day's date</li>
+ *     <li>players without any processed encounter are left enabled with their initial score, ranked after the
+ *     active players</li>
+ * </ul>
+ * With the lazy inactivity decay the replay writes demerits the same way processing does : as one row when the player
+ * plays again or is deactivated, while the ranking uses the scores with the pending demerits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingReplayEngine {
+
+    private static final int HISTORY_FLUSH_SIZE = 10_000;
+
+    private static final double DEFAULT_RANK_SCORE = 1000;
+
+    private final ReplayRepository replayRepository;
+
+    private final ScoreBatchRepository scoreBatchRepository;
+
+    private final PlayerUtil playerUtil;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LeaderboardIndex leaderboardIndex;
+
+    private final PairStatisticsMatrix pairStatisticsMatrix;
+
+    private final InactivityDecay inactivityDecay;
+
+    public ReplayResult replay(ReplayTarget target) {
+        long startedAt = System.currentTimeMillis();
+        ReplayResult result;
+        if (target == ReplayTarget.LIVE) {
+            result = transactionTemplate.execute(status -> {
+                // Read from the history about to be deleted
+                Map<Integer, Double> initialScores = replayRepository.findInitialScores();
+                replayRepository.deleteScoreHistory();
+                ReplayResult replayResult = new Replay(target, startedAt, initialScores).run();
+                leaderboardIndex.invalidate();
+                pairStatisticsMatrix.invalidate();
+                eventPublisher.publishEvent(new RatingsUpdatedEvent(LocalDate.now()));
+                return replayResult;
+            });
+        } else {
+            // DDL commits implicitly in MySQL, so the shadow tables are prepared outside of any transaction
+            replayRepository.prepareShadowTables();
+            result = new Replay(target, startedAt, replayRepository.findInitialScores()).run();
+        }
+        log.info("Replay finished : {}", result);
+        return result;
+    }
+
+    private final class Replay {
+
+        private final ReplayTarget target;
+        private final long startedAt;
+        private final String historyTable;
+        private final Map<Integer, Double> initialScores;
+
+        private final ScoreHistoryBuffer history = new ScoreHistoryBuffer(HISTORY_FLUSH_SIZE);
+        private final Map<Integer, Double> dayEncounterScores = new LinkedHashMap<>();
+        private final boolean lazyDecay = inactivityDecay.isLazy();
+
+        private boolean[] joined = new boolean[0];
+        private double[] scores = new double[0];
+        private int[] ranks = new int[0];
+        private int[] highestRanks = new int[0];
+        private LocalDate[] rankSince = new LocalDate[0];
+        private PlayerStatus[] statuses = new PlayerStatus[0];
+        private int[] lastActiveDay = new int[0];
+        private int[] rankAtLastActiveDay = new int[0];
+        // Game day of the player's latest history row, the day their score was last brought up to date
+        private int[] scoredDay = new int[0];
+        private int[] rankHolders = new int[1];
+
+        private int rankedPlayers;
+        private int dayIndex = -1;
+        private int dayHistoryStart;
+        private LocalDate currentDate;
+        private int encounterCount;
+        private long historyRowCount;
+
+        private Replay(ReplayTarget target, long startedAt, Map<Integer, Double> initialScores) {
+            this.target = target;
+            this.startedAt = startedAt;
+            this.historyTable = target == ReplayTarget.LIVE ? "SCORE_HISTORY" : ReplayRepository.SHADOW_SCORE_HISTORY_TABLE;
+            this.initialScores = initialScores;
+            ensureCapacity(initialScores.keySet().stream().mapToInt(Integer::intValue).max().orElse(0));
+        }
+
+        private ReplayResult run() {
+            replayRepository.streamEncounters(rs -> applyEncounter(rs.getInt(1), rs.getString(2), rs.getString(3),
+                    rs.getDate(4).toLocalDate(), rs.getInt(5), rs.getInt(6)));
+            if (currentDate != null) {
+                finishDay();
+            }
+            flushHistory();
+            writePlayers();
+            return new ReplayResult(target, encounterCount, dayIndex + 1, countJoined(), historyRowCount,
+                    System.currentTimeMillis() - startedAt);
+        }
+
+        private void applyEncounter(int encounterId, String team1, String team2, LocalDate encounterDate,
+                                    int team1SetPoints, int team2SetPoints) {
+            if (!encounterDate.equals(currentDate)) {
+                if (currentDate != null) {
+                    finishDay();
+                }
+                startDay(encounterDate);
+            }
+            int[] team1PlayerIds = playerUtil.getPlayerIdsByIdsString(team1);
+            int[] team2PlayerIds = playerUtil.getPlayerIdsByIdsString(team2);
+            prepareTeam(team1PlayerIds);
+            prepareTeam(team2PlayerIds);
+
+            double team1Score = EloRankScoreCalculator.calculateTeam1Score(getTeamAverageScore(team1PlayerIds),
+                    getTeamAverageScore(team2PlayerIds), team1SetPoints, team2SetPoints);
+            applyTeamScore(team1PlayerIds, team1Score, encounterId);
+            applyTeamScore(team2PlayerIds, -1 * team1Score, encounterId);
+
+            dayEncounterScores.put(encounterId, Math.abs(team1Score));
+            encounterCount++;
+        }
+
+        private void startDay(LocalDate encounterDate) {
+            currentDate = encounterDate;
+            dayIndex++;
+            dayHistoryStart = history.size();
+        }
+
+        private void prepareTeam(int[] playerIds) {
+            for (int playerId : playerIds) {
+                ensureCapacity(playerId);
+                if (!joined[playerId]) {
+                    join(playerId);
+                } else if (statuses[playerId] == PlayerStatus.DISABLED) {
+                    activate(playerId);
+                } else {
+                    materializeDecay(playerId);
+                }
+            }
+        }
+
+        private void join(int playerId) {
+            joined[playerId] = true;
+            scores[playerId] = initialScores.getOrDefault(playerId, DEFAULT_RANK_SCORE);
+            ranks[playerId] = rankedPlayers + 1;
+            highestRanks[playerId] = ranks[playerId];
+            rankSince[playerId] = currentDate;
+            statuses[playerId] = PlayerStatus.ENABLED;
+            scoredDay[playerId] = dayIndex;
+        }
+
+        private void activate(int playerId) {
+            int rankAtLastGame = rankAtLastActiveDay[playerId];
+            double baseScore;
+            if (rankAtLastGame > 0 && rankAtLastGame <= rankedPlayers) {
+                int rankHolder = rankHolders[rankAtLastGame];
+                baseScore = scores[rankHolder] + getPendingDecay(rankHolder, dayIndex - 1);
+            } else {
+                baseScore = minimumActiveScore();
+            }
+            double oldScore = scores[playerId];
+            scores[playerId] = baseScore - (DEMERIT_POINTS_ABSENTEE * 3);
+            statuses[playerId] = PlayerStatus.ENABLED;
+            addHistory(playerId, ACTIVATE_PLAYER_ENCOUNTER_ID, oldScore, scores[playerId]);
+        }
+
+        private void applyTeamScore(int[] playerIds, double teamScore, int encounterId) {
+            for (int playerId : playerIds) {
+                double oldScore = scores[playerId];
+                scores[playerId] = oldScore + teamScore;
+                addHistory(playerId, encounterId, oldScore, scores[playerId]);
+                statuses[playerId] = PlayerStatus.ACTIVE;
+                lastActiveDay[playerId] = dayIndex;
+            }
+        }
+
+        private void finishDay() {
+            applyAbsentees();
+            rankActivePlayers();
+            stampDayHistory();
+            if (target == ReplayTarget.LIVE) {
+                scoreBatchRepository.markEncountersProcessed(dayEncounterScores);
+            }
+            dayEncounterScores.clear();
+            if (history.size() >= HISTORY_FLUSH_SIZE) {
+                flushHistory();
+            }
+        }
+
+        private void applyAbsentees() {
+            // Same window as the live pipeline : the 7th most recent game day, counting the current one
+            int cutOverDay = dayIndex - 6;
+            for (int playerId = 0; playerId < joined.length; playerId++) {
+                if (!joined[playerId] || statuses[playerId] == PlayerStatus.DISABLED || lastActiveDay[playerId] == dayIndex) {
+                    continue;
+                }
+                if (dayIndex + 1 > 6 && lastActiveDay[playerId] < cutOverDay) {
+                    materializeDecay(playerId);
+                    statuses[playerId] = PlayerStatus.DISABLED;
+                    ranks[playerId] = -1;
+                    rankSince[playerId] = currentDate;
+                    addHistory(playerId, DISABLE_PLAYER_ENCOUNTER_ID, scores[playerId], scores[playerId]);
+                } else if (!lazyDecay) {
+                    double oldScore = scores[playerId];
+                    scores[playerId] = oldScore + DEMERIT_POINTS_ABSENTEE;
+                    addHistory(playerId, ABSENTEE_ENCOUNTER_ID, oldScore, scores[playerId]);
+                }
+            }
+        }
+
+        // Writes the demerits of the game days missed before the current one as a single absentee row
+        private void materializeDecay(int playerId) {
+            double decay = getPendingDecay(playerId, dayIndex - 1);
+            if (decay != 0) {
+                double oldScore = scores[playerId];
+                scores[playerId] = oldScore + decay;
+                addHistory(playerId, ABSENTEE_ENCOUNTER_ID, oldScore, scores[playerId]);
+            }
+        }
+
+        // Demerits the player owes in lazy mode for the game days after their latest history row, up to the given day
+        private double getPendingDecay(int playerId, int lastDay) {
+            if (!lazyDecay || statuses[playerId] == PlayerStatus.DISABLED) {
+                return 0;
+            }
+            int pendingDays = lastDay - scoredDay[playerId];
+            return pendingDays > 0 ? DEMERIT_POINTS_ABSENTEE * pendingDays : 0;
+        }
+
+        private double getEffectiveScore(int playerId) {
+            return scores[playerId] + getPendingDecay(playerId, dayIndex);
+        }
+
+        private void rankActivePlayers() {
+            List<Integer> activePlayers = new ArrayList<>();
+            for (int playerId = 0; playerId < joined.length; playerId++) {
+                if (joined[playerId] && statuses[playerId] == PlayerStatus.ACTIVE) {
+                    activePlayers.add(playerId);
+                }
+            }
+            activePlayers.sort(Comparator.<Integer>comparingDouble(id -> -getEffectiveScore(id)).thenComparingInt(id -> ranks[id]));
+
+            rankedPlayers = activePlayers.size();
+            if (rankHolders.length <= rankedPlayers) {
+                rankHolders = new int[rankedPlayers + 1];
+            }
+            int rank = 0;
+            for (int playerId : activePlayers) {
+                ranks[playerId] = ++rank;
+                rankHolders[rank] = playerId;
+                if (rank < highestRanks[playerId]) {
+                    highestRanks[playerId] = rank;
+                    rankSince[playerId] = currentDate;
+                }
+                if (lastActiveDay[playerId] == dayIndex) {
+                    rankAtLastActiveDay[playerId] = rank;
+                }
+            }
+        }
+
+        private void stampDayHistory() {
+            for (int row = dayHistoryStart; row < history.size(); row++) {
+                int playerId = history.getPlayerId(row);
+                if (statuses[playerId] == PlayerStatus.ACTIVE) {
+                    history.setPlayerNewRank(row, ranks[playerId]);
+                }
+            }
+        }
+
+        private void flushHistory() {
+            replayRepository.insertScoreHistory(historyTable, history);
+            historyRowCount += history.size();
+            history.clear();
+            dayHistoryStart = 0;
+        }
+
+        private void writePlayers() {
+            List<Object[]> rows = new ArrayList<>();
+            for (int playerId = 0; playerId < joined.length; playerId++) {
+                if (joined[playerId]) {
+                    rows.add(new Object[]{playerId, scores[playerId], ranks[playerId], highestRanks[playerId],
+                            Date.valueOf(rankSince[playerId]), statuses[playerId].name()});
+                }
+            }
+            // Players who never played are outside the replayed ranking, their stale ranks would collide with it
+            List<Integer> idlePlayers = initialScores.keySet().stream()
+                    .filter(playerId -> !joined[playerId])
+                    .sorted(Comparator.<Integer>comparingDouble(initialScores::get).reversed().thenComparingInt(id -> id))
+                    .toList();
+            Date idleRankSince = Date.valueOf(currentDate != null ? currentDate : LocalDate.now());
+            int rank = rankedPlayers;
+            for (int playerId : idlePlayers) {
+                rank++;
+                rows.add(new Object[]{playerId, initialScores.get(playerId), rank, rank, idleRankSince,
+                        PlayerStatus.ENABLED.name()});
+            }
+            replayRepository.writePlayers(target == ReplayTarget.LIVE, rows);
+        }
+
+        private void addHistory(int playerId, int encounterId, double oldScore, double newScore) {
+            history.add(playerId, encounterId, oldScore, newScore, ranks[playerId], currentDate);
+            scoredDay[playerId] = dayIndex;
+        }
+
+        private double getTeamAverageScore(int[] playerIds) {
+            double sum = 0;
+            for (int playerId : playerIds) {
+                sum += scores[playerId];
+            }
+            return sum / playerIds.length;
+        }
+
+        private double minimumActiveScore() {
+            double min = Double.MAX_VALUE;
+            for (int rank = 1; rank <= rankedPlayers; rank++) {
+                min = Math.min(min, scores[rankHolders[rank]] + getPendingDecay(rankHolders[rank], dayIndex - 1));
+            }
+            return rankedPlayers == 0 ? DEFAULT_RANK_SCORE : min;
+        }
+
+        private int countJoined() {
+            int count = 0;
+            for (boolean j : joined) {
+                if (j) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void ensureCapacity(int playerId) {
+            if (playerId < joined.length) {
+                return;
+            }
+            int capacity = Math.max(playerId + 1, joined.length * 2);
+            joined = Arrays.copyOf(joined, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            highestRanks = Arrays.copyOf(highestRanks, capacity);
+            rankSince = Arrays.copyOf(rankSince, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            lastActiveDay = Arrays.copyOf(lastActiveDay, capacity);
+            rankAtLastActiveDay = Arrays.copyOf(rankAtLastActiveDay, capacity);
+            scoredDay = Arrays.copyOf(scoredDay, capacity);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.brs.backend.core;
+
+import com.brs.backend.dto.PlayerStatus;
+import com.brs.backend.model.Encounter;
+import com.brs.backend.model.Player;
+import com.brs.backend.model.ScoreHistory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * In-memory struct-of-arrays view of every player's rating, indexed directly by player id.
+ * <p>
+ * A processing run loads the table once, applies every score change of the run against the primitive
+ * arrays and hands the touched players and the accumulated history rows back for a single flush.
+ * A simulation works on a {@link #copy()} and never flushes.
+ */
+public class RatingTable {
+
+    private static final byte STATUS_UNKNOWN = -1;
+    private static final int NO_HIGHEST_RANK = Integer.MAX_VALUE;
+
+    private final Player[] players;
+    private final double[] scores;
+    private final int[] ranks;
+    private final int[] highestRanks;
+    private final byte[] statuses;
+    private final LocalDate[] rankSince;
+    private final boolean[] dirty;
+
+    private final List<ScoreHistory> pendingHistory = new ArrayList<>();
+
+    private final Map<Integer, Double> processedEncounterScores = new LinkedHashMap<>();
+
+    private final List<Encounter> processedEncounters = new ArrayList<>();
+
+    private final List<Runnable> flushActions = new ArrayList<>();
+
+    private RatingTable(int capacity) {
+        players = new Player[capacity];
+        scores = new double[capacity];
+        ranks = new int[capacity];
+        highestRanks = new int[capacity];
+        statuses = new byte[capacity];
+        rankSince = new LocalDate[capacity];
+        dirty = new boolean[capacity];
+    }
+
+    private RatingTable(RatingTable source) {
+        players = source.players;
+        scores = source.scores.clone();
+        ranks = source.ranks.clone();
+        highestRanks = source.highestRanks.clone();
+        statuses = source.statuses.clone();
+        rankSince = source.rankSince.clone();
+        dirty = source.dirty.clone();
+        pendingHistory.addAll(source.pendingHistory);
+        processedEncounterScores.putAll(source.processedEncounterScores);
+        processedEncounters.addAll(source.processedEncounters);
+    }
+
+    public static RatingTable load(Collection<Player> players) {
+        int maxId = players.stream().mapToInt(Player::getId).max().orElse(0);
+        RatingTable table = new RatingTable(maxId + 1);
+        for (Player player : players) {
+            int id = player.getId();
+            table.players[id] = player;
+            table.scores[id] = player.getRankScore();
+            table.ranks[id] = player.getPlayerRank() == null ? 0 : player.getPlayerRank();
+            table.highestRanks[id] = player.getHighestRank() == null ? NO_HIGHEST_RANK : player.getHighestRank();
+            table.statuses[id] = player.getStatus() == null ? STATUS_UNKNOWN : (byte) player.getStatus().ordinal();
+            table.rankSince[id] = player.getRankSince();
+        }
+        return table;
+    }
+
+    /**
+     * Returns an independent copy of the ratings. The player entities are shared and never modified by the copy
+     * unless it is flushed.
+     */
+    public RatingTable copy() {
+        return new RatingTable(this);
+    }
+
+    public boolean contains(int playerId) {
+        return playerId >= 0 && playerId < players.length && players[playerId] != null;
+    }
+
+    public List<Player> getPlayers() {
+        var result = new ArrayList<Player>();
+        for (Player player : players) {
+            if (player != null) {
+                result.add(player);
+            }
+        }
+        return result;
+    }
+
+    public double getScore(int playerId) {
+        return scores[playerId];
+    }
+
+    public int getRank(int playerId) {
+        return ranks[playerId];
+    }
+
+    public Integer getHighestRank(int playerId) {
+        return highestRanks[playerId] == NO_HIGHEST_RANK ? null : highestRanks[playerId];
+    }
+
+    public PlayerStatus getStatus(int playerId) {
+        byte status = statuses[playerId];
+        return status == STATUS_UNKNOWN ? null : PlayerStatus.values()[status];
+    }
+
+    public boolean isActive(int playerId) {
+        return statuses[playerId] == PlayerStatus.ACTIVE.ordinal();
+    }
+
+    public double getTeamAverageScore(int[] playerIds) {
+        double sum = 0;
+        for (int playerId : playerIds) {
+            if (!contains(playerId)) {
+                throw new RuntimeException("Player with id '" + playerId + "' not found");
+            }
+            sum += scores[playerId];
+        }
+        return sum / playerIds.length;
+    }
+
+    public void setStatus(int playerId, PlayerStatus status) {
+        statuses[playerId] = (byte) status.ordinal();
+        dirty[playerId] = true;
+    }
+
+    /**
+     * Adds the given points to the player's score and records the matching history row.
+     */
+    public void applyScore(int playerId, double points, int encounterId, LocalDate encounterDate) {
+        double oldScore = scores[playerId];
+        double newScore = oldScore + points;
+        scores[playerId] = newScore;
+        dirty[playerId] = true;
+        addHistory(playerId, encounterId, encounterDate, oldScore, newScore);
+    }
+
+    public void deactivate(int playerId, int encounterId, LocalDate encounterDate) {
+        statuses[playerId] = (byte) PlayerStatus.DISABLED.ordinal();
+        ranks[playerId] = -1;
+        rankSince[playerId] = encounterDate;
+        dirty[playerId] = true;
+        addHistory(playerId, encounterId, encounterDate, scores[playerId], scores[playerId]);
+    }
+
+    /**
+     * Ranks the active players the same way the persisted ranking does : by descending score, keeping the
+     * current order for equal scores. The score of every player id is taken from the function, so pending
+     * demerits can be counted in.
+     */
+    public void rankActivePlayers(LocalDate rankDate, IntToDoubleFunction scoreFunction) {
+        List<Integer> activePlayers = new ArrayList<>();
+        for (int id = 0; id < players.length; id++) {
+            if (players[id] != null && isActive(id)) {
+                activePlayers.add(id);
+            }
+        }
+        activePlayers.sort(Comparator.<Integer>comparingDouble(id -> -scoreFunction.applyAsDouble(id)).thenComparingInt(id -> ranks[id]));
+
+        int rank = 0;
+        for (int id : activePlayers) {
+            rank++;
+            if (ranks[id] != rank) {
+                ranks[id] = rank;
+                dirty[id] = true;
+            }
+            if (rank < highestRanks[id]) {
+                highestRanks[id] = rank;
+                rankSince[id] = rankDate;
+                dirty[id] = true;
+            }
+        }
+    }
+
+    /**
+     * Takes over ranks committed outside of the table, so the table stays in sync with the stored players without
+     * being loaded again. The players are not marked as changed.
+     */
+    public void applyRanks(List<LeaderboardIndex.RankChange> rankChanges) {
+        for (LeaderboardIndex.RankChange change : rankChanges) {
+            if (!contains(change.playerId())) {
+                continue;
+            }
+            ranks[change.playerId()] = change.rank();
+            highestRanks[change.playerId()] = change.highestRank();
+            rankSince[change.playerId()] = change.rankSince();
+        }
+    }
+
+    /**
+     * Registers a write that belongs to this run, executed only when the table is flushed.
+     */
+    public void onFlush(Runnable action) {
+        flushActions.add(action);
+    }
+
+    public List<Runnable> drainFlushActions() {
+        var actions = new ArrayList<>(flushActions);
+        flushActions.clear();
+        return actions;
+    }
+
+    public void markEncounterProcessed(Encounter encounter, double calculatedScore) {
+        if (processedEncounterScores.put(encounter.getId(), calculatedScore) == null) {
+            processedEncounters.add(encounter);
+        }
+    }
+
+    /**
+     * Copies the in-memory state back to the loaded entities and returns only the players that changed.
+     */
+    public List<Player> applyToPlayers() {
+        var changed = new ArrayList<Player>();
+        for (int id = 0; id < players.length; id++) {
+            if (!dirty[id]) {
+                continue;
+            }
+            Player player = players[id];
+            player.setRankScore(scores[id]);
+            player.setPlayerRank(ranks[id]);
+            player.setHighestRank(getHighestRank(id));
+            player.setStatus(getStatus(id));
+            player.setRankSince(rankSince[id]);
+            changed.add(player);
+            dirty[id] = false;
+        }
+        return changed;
+    }
+
+    public List<ScoreHistory> drainHistory() {
+        var history = new ArrayList<>(pendingHistory);
+        pendingHistory.clear();
+        return history;
+    }
+
+    /**
+     * Returns the calculated score of every encounter processed since the last drain, by encounter id.
+     * The processed encounters stay available through {@link #drainProcessedEncounters()}.
+     */
+    public Map<Integer, Double> drainProcessedEncounterScores() {
+        var scores = new LinkedHashMap<>(processedEncounterScores);
+        processedEncounterScores.clear();
+        return scores;
+    }
+
+    public List<Encounter> drainProcessedEncounters() {
+        var encounters = new ArrayList<>(processedEncounters);
+        processedEncounters.clear();
+        return encounters;
+    }
+
+    private void addHistory(int playerId, int encounterId, LocalDate encounterDate, double oldScore, double newScore) {
+        pendingHistory.add(ScoreHistory.builder()
+                .playerId(playerId)
+                .encounterId(encounterId)
+                .oldRankScore(oldScore)
+                .newRankScore(newScore)
+                .playerOldRank(ranks[playerId])
+                .encounterDate(encounterDate)
+                .build());
+    }
+}
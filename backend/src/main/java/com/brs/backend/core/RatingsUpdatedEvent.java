@@ -0,0 +1,13 @@
+package com.brs.backend.core;
+
+import java.time.LocalDate;
+
+/**
+ * Published whenever player ratings, ranks, statuses or details changed, so the read side caches derived from
+ * the players can rebuild. Listeners bound to the transaction only see it once the changes committed.
+ * <p>
+ * Publishing it also moves the data version, once every read model listener ran. Writes publishing it do not bump the
+ * version themselves.
+ */
+public record RatingsUpdatedEvent(LocalDate date) {
+}
@@ -0,0 +1,95 @@
+package com.brs.backend.core;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Growable primitive column buffer of score history rows, used where creating one object per row would dominate
+ * the cost of a run.
+ */
+public class ScoreHistoryBuffer {
+
+    private int size;
+    private int[] playerIds;
+    private int[] encounterIds;
+    private double[] oldRankScores;
+    private double[] newRankScores;
+    private int[] playerOldRanks;
+    private int[] playerNewRanks;
+    private long[] encounterDays;
+
+    public ScoreHistoryBuffer(int initialCapacity) {
+        playerIds = new int[initialCapacity];
+        encounterIds = new int[initialCapacity];
+        oldRankScores = new double[initialCapacity];
+        newRankScores = new double[initialCapacity];
+        playerOldRanks = new int[initialCapacity];
+        playerNewRanks = new int[initialCapacity];
+        encounterDays = new long[initialCapacity];
+    }
+
+    public void add(int playerId, int encounterId, double oldRankScore, double newRankScore, int playerOldRank, LocalDate encounterDate) {
+        if (size == playerIds.length) {
+            grow();
+        }
+        playerIds[size] = playerId;
+        encounterIds[size] = encounterId;
+        oldRankScores[size] = oldRankScore;
+        newRankScores[size] = newRankScore;
+        playerOldRanks[size] = playerOldRank;
+        playerNewRanks[size] = 0;
+        encounterDays[size] = encounterDate.toEpochDay();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int getPlayerId(int row) {
+        return playerIds[row];
+    }
+
+    public int getEncounterId(int row) {
+        return encounterIds[row];
+    }
+
+    public double getOldRankScore(int row) {
+        return oldRankScores[row];
+    }
+
+    public double getNewRankScore(int row) {
+        return newRankScores[row];
+    }
+
+    public int getPlayerOldRank(int row) {
+        return playerOldRanks[row];
+    }
+
+    public int getPlayerNewRank(int row) {
+        return playerNewRanks[row];
+    }
+
+    public void setPlayerNewRank(int row, int playerNewRank) {
+        playerNewRanks[row] = playerNewRank;
+    }
+
+    public LocalDate getEncounterDate(int row) {
+        return LocalDate.ofEpochDay(encounterDays[row]);
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, playerIds.length * 2);
+        playerIds = Arrays.copyOf(playerIds, capacity);
+        encounterIds = Arrays.copyOf(encounterIds, capacity);
+        oldRankScores = Arrays.copyOf(oldRankScores, capacity);
+        newRankScores = Arrays.copyOf(newRankScores, capacity);
+        playerOldRanks = Arrays.copyOf(playerOldRanks, capacity);
+        playerNewRanks = Arrays.copyOf(playerNewRanks, capacity);
+        encounterDays = Arrays.copyOf(encounterDays, capacity);
+    }
+}
@@ -6,15 +6,18 @@ import com.brs.backend.model.Player;
 import com.brs.backend.model.ScoreHistory;
 import com.brs.backend.repositories.EncounterRepository;
 import com.brs.backend.repositories.PlayerRepository;
+import com.brs.backend.repositories.ScoreBatchRepository;
 import com.brs.backend.repositories.ScoreHistoryRepository;
 import com.brs.backend.util.PlayerUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import static com.brs.backend.common.Constants.ACTIVATE_PLAYER_ENCOUNTER_ID;
 import static com.brs.backend.common.Constants.DEMERIT_POINTS_ABSENTEE;
@@ -31,9 +34,21 @@ public class ScorePersister {
     @Autowired
     private ScoreHistoryRepository scoreHistoryRepository;
 
+    @Autowired
+    private ScoreBatchRepository scoreBatchRepository;
+
     @Autowired
     private PlayerUtil playerUtil;
 
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+
+    @Autowired
+    private InactivityDecay inactivityDecay;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public void persistScores(int encounterId, double team1Score, double team2Score) {
 
@@ -44,6 +59,37 @@ public class ScorePersister {
 
         updatePlayers(team1Score, encounter.getTeam1(), encounter);
         updatePlayers(team2Score, encounter.getTeam2(), encounter);
+
+        eventPublisher.publishEvent(new EncountersProcessedEvent(List.of(toProcessedEncounter(encounter, Math.abs(team1Score)))));
+    }
+
+    /**
+     * Writes the final state of an in-memory processing run : the processed encounters, every player whose
+     * rating changed and the history rows collected along the way.
+     */
+    @Transactional
+    public void flush(RatingTable ratingTable) {
+        Map<Integer, Double> calculatedScores = ratingTable.drainProcessedEncounterScores();
+        scoreBatchRepository.markEncountersProcessed(calculatedScores);
+        List<Player> changedPlayers = ratingTable.applyToPlayers();
+        scoreBatchRepository.updatePlayers(changedPlayers);
+        scoreBatchRepository.insertScoreHistory(ratingTable.drainHistory());
+        // Read once the rows are written, so the players just scored owe nothing
+        InactivityDecay.Snapshot decay = inactivityDecay.load();
+        changedPlayers.forEach(player -> leaderboardIndex.update(player, decay.getEffectiveScore(player)));
+        ratingTable.drainFlushActions().forEach(Runnable::run);
+
+        List<EncountersProcessedEvent.ProcessedEncounter> processedEncounters = ratingTable.drainProcessedEncounters().stream()
+                .map(e -> toProcessedEncounter(e, calculatedScores.get(e.getId())))
+                .toList();
+        eventPublisher.publishEvent(new EncountersProcessedEvent(processedEncounters));
+    }
+
+    private EncountersProcessedEvent.ProcessedEncounter toProcessedEncounter(Encounter encounter, double calculatedScore) {
+        return new EncountersProcessedEvent.ProcessedEncounter(encounter.getId(),
+                playerUtil.getPlayerIdsByIdsString(encounter.getTeam1()),
+                playerUtil.getPlayerIdsByIdsString(encounter.getTeam2()),
+                encounter.getTeam1SetPoints(), encounter.getTeam2SetPoints(), calculatedScore);
     }
 
     private void updatePlayers(double teamScore, String teamIdsString, Encounter encounter) {
@@ -89,12 +135,14 @@ public class ScorePersister {
             var games = scoreHistoryRepository.findAllByPlayerId(player.getId());
             var lastActiveGame = games.stream().filter(g -> g.getEncounterId() > 0).max(Comparator.comparing(ScoreHistory::getEncounterDate)).orElseThrow();
             var rankAtLastActiveGame = lastActiveGame.getPlayerNewRank();
-            var currentMinMarks = playerRepository.findAll().stream().filter(Player::isActive).map(Player::getRankScore).min(Double::compareTo).orElseThrow();
-            var currentSameRankPlayer = playerRepository.findAll()
+            var allPlayers = playerRepository.findAll();
+            var decay = inactivityDecay.load();
+            var currentMinMarks = allPlayers.stream().filter(Player::isActive).map(decay::getEffectiveScore).min(Double::compareTo).orElseThrow();
+            var currentSameRankPlayer = allPlayers
                     .stream()
                     .filter(p -> p.getPlayerRank() == rankAtLastActiveGame)
                     .findFirst();
-            newScore = (currentSameRankPlayer.isPresent() ? currentSameRankPlayer.get().getRankScore() : currentMinMarks) - (DEMERIT_POINTS_ABSENTEE * 3);
+            newScore = (currentSameRankPlayer.isPresent() ? decay.getEffectiveScore(currentSameRankPlayer.get()) : currentMinMarks) - (DEMERIT_POINTS_ABSENTEE * 3);
         }
         var lastRankScore = player.getRankScore();
         player.setRankScore(newScore);
@@ -0,0 +1,17 @@
+package com.brs.backend.core;
+
+import com.brs.backend.model.Encounter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A rating model that can run next to the primary calculator, rating each game day as one period and keeping its
+ * state in its own table, so models can be compared on real data without touching PLAYER or SCORE_HISTORY.
+ */
+public interface ShadowRatingModel {
+
+    String getName();
+
+    void ratePeriod(LocalDate periodDate, List<Encounter> encounters);
+}
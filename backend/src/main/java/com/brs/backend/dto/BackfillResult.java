@@ -0,0 +1,10 @@
+package com.brs.backend.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Outcome of a backfill run. The checkpoint is the last committed date before the run started, a run interrupted
+ * halfway is resumed by starting it again.
+ */
+public record BackfillResult(LocalDate resumedAfter, int dates, int encounters, LocalDate lastProcessedDate, long durationMillis) {
+}
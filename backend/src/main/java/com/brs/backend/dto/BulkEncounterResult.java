@@ -0,0 +1,11 @@
+package com.brs.backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Outcome of a game day submission. Sets already submitted for the same teams are updated unless they are processed,
+ * in which case they are left as they are and counted as skipped.
+ */
+public record BulkEncounterResult(LocalDate date, int inserted, int updated, int skipped, List<Integer> encounterIds) {
+}
@@ -0,0 +1,16 @@
+package com.brs.backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Column oriented form of the player history, for charts.
+ * <p>
+ * Dates are listed once in {@code dates} and referenced by index. The integer columns of a player are delta encoded :
+ * the first value is absolute and each next value is the difference to the previous one. Scores are sent as absolute
+ * values with full precision, the same numbers as in the per-item history.
+ */
+public record ColumnarHistory(HistoryType type, List<LocalDate> dates, List<ColumnarPlayerHistory> players) {
+
+    public static final String MEDIA_TYPE = "application/vnd.brs.history-columnar+json";
+}
@@ -0,0 +1,18 @@
+package com.brs.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * History columns of one player, the integer columns delta encoded and the scores as they are. Columns the history
+ * type does not carry are left out.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ColumnarPlayerHistory(Integer playerId,
+                                    String playerName,
+                                    int[] encounterIds,
+                                    int[] dateIndexes,
+                                    int[] oldRanks,
+                                    int[] newRanks,
+                                    double[] oldScores,
+                                    double[] newScores) {
+}
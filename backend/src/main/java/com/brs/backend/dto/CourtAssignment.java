@@ -0,0 +1,9 @@
+package com.brs.backend.dto;
+
+public record CourtAssignment(int court,
+                              int[] team1,
+                              int[] team2,
+                              double team1AverageScore,
+                              double team2AverageScore,
+                              double team1WinProbability) {
+}
@@ -0,0 +1,7 @@
+package com.brs.backend.dto;
+
+public enum ExportDataset {
+    ENCOUNTERS,
+    SCORE_HISTORY,
+    PLAYERS,
+}
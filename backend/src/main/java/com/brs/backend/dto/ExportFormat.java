@@ -0,0 +1,6 @@
+package com.brs.backend.dto;
+
+public enum ExportFormat {
+    NDJSON,
+    CSV,
+}
@@ -0,0 +1,12 @@
+package com.brs.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/**
+ * Outcome of one sheet of an uploaded archive. The error is set when nothing of the sheet was inserted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FileIngestionResult(String fileName, LocalDate date, int encounters, String error) {
+}
@@ -0,0 +1,6 @@
+package com.brs.backend.dto;
+
+import java.util.List;
+
+public record IngestionSummary(int files, int failedFiles, int encounters, long durationMillis, List<FileIngestionResult> results) {
+}
@@ -0,0 +1,4 @@
+package com.brs.backend.dto;
+
+public record LeaderboardEntry(Integer playerId, String name, Integer rank, Double rankScore) {
+}
@@ -0,0 +1,10 @@
+package com.brs.backend.dto;
+
+import java.util.List;
+
+public record MatchmakingResult(List<CourtAssignment> courts,
+                                List<Integer> benchedPlayerIds,
+                                double totalScoreGap,
+                                long evaluatedMoves,
+                                long durationMillis) {
+}
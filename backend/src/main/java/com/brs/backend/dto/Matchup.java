@@ -0,0 +1,4 @@
+package com.brs.backend.dto;
+
+public record Matchup(int[] team1, int[] team2) {
+}
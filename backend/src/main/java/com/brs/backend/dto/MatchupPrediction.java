@@ -0,0 +1,4 @@
+package com.brs.backend.dto;
+
+public record MatchupPrediction(double team1WinProbability, double team2WinProbability) {
+}
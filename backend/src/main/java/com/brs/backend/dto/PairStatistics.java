@@ -0,0 +1,9 @@
+package com.brs.backend.dto;
+
+public record PairStatistics(Integer playerId,
+                             Integer otherPlayerId,
+                             int games,
+                             int wins,
+                             int setPointDifference,
+                             double rankScoreChange) {
+}
@@ -0,0 +1,4 @@
+package com.brs.backend.dto;
+
+public record PlayerDisplay(Integer id, String name, String colorHex) {
+}
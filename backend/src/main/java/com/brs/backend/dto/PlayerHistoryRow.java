@@ -0,0 +1,10 @@
+package com.brs.backend.dto;
+
+import java.time.LocalDate;
+
+/**
+ * One history row joined with its player. The history fields are null for a player without history.
+ */
+public record PlayerHistoryRow(Integer playerId, String playerName, Integer encounterId, LocalDate encounterDate,
+                               Integer oldRank, Integer newRank, Double oldRankScore, Double newRankScore) {
+}
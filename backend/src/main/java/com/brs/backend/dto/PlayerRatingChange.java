@@ -0,0 +1,12 @@
+package com.brs.backend.dto;
+
+public record PlayerRatingChange(Integer playerId,
+                                 String name,
+                                 Double oldRankScore,
+                                 Double newRankScore,
+                                 Double scoreChange,
+                                 Integer oldRank,
+                                 Integer newRank,
+                                 PlayerStatus oldStatus,
+                                 PlayerStatus newStatus) {
+}
@@ -0,0 +1,8 @@
+package com.brs.backend.dto;
+
+public enum ProcessingJobState {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+}
@@ -0,0 +1,15 @@
+package com.brs.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Progress of a processing job. The date is the date being processed, or last processed once the job finished.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProcessingJobStatus(String jobId, LocalDate date, ProcessingJobState state, ProcessingStage stage,
+                                  int datesProcessed, int datesTotal,
+                                  Instant submittedAt, Instant startedAt, Instant finishedAt, String error) {
+}
@@ -0,0 +1,15 @@
+package com.brs.backend.dto;
+
+public enum ProcessingStage {
+    // Waiting for the processing executor
+    QUEUED,
+    // Applying the encounters and the absentee deductions to the ratings
+    RATING,
+    // Ranking the players on the new scores
+    RANKING,
+    // Writing the new ranks into the score history of the date
+    RANK_HISTORY,
+    // Rating the encounters with the shadow models, once the date committed
+    SHADOW_MODELS,
+    DONE,
+}
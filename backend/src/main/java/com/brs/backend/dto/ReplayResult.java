@@ -0,0 +1,4 @@
+package com.brs.backend.dto;
+
+public record ReplayResult(ReplayTarget target, int encounters, int gameDays, int players, long historyRows, long durationMillis) {
+}
@@ -0,0 +1,8 @@
+package com.brs.backend.dto;
+
+public enum ReplayTarget {
+    // Writes into PLAYER_REPLAY and SCORE_HISTORY_REPLAY, leaving the live tables untouched
+    SHADOW,
+    // Rewrites PLAYER, SCORE_HISTORY and the calculated ENCOUNTER scores
+    LIVE,
+}
@@ -0,0 +1,7 @@
+package com.brs.backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record SimulationResult(LocalDate encounterDate, int encounters, List<PlayerRatingChange> changes) {
+}
@@ -0,0 +1,14 @@
+package com.brs.backend.dto.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MatchmakingRequest {
+    // Players to schedule, every player available for a game when empty
+    private List<Integer> playerIds;
+    private int courts;
+    // Overrides the configured search time budget when set
+    private Long timeBudgetMillis;
+}
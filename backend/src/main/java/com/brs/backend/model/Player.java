@@ -3,18 +3,24 @@ package com.brs.backend.model;
 import com.brs.backend.dto.PlayerStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
 
 @Entity(name="PLAYER")
 @Table(name = "PLAYER")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Player.CACHE_REGION)
 @RequiredArgsConstructor
 @Getter
 @Setter
 @ToString
 //@NoArgsConstructor
 public class Player {
+    public static final String CACHE_REGION = "player";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
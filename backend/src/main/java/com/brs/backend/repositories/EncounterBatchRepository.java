@@ -0,0 +1,115 @@
+package com.brs.backend.repositories;
+
+import com.brs.backend.model.Encounter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes whole game days of encounters with one JDBC batch instead of one {@code save} per encounter.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EncounterBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the encounters and sets the generated ids on them, in the given order.
+     */
+    public void insertEncounters(List<Encounter> encounters) {
+        if (encounters.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("""
+                    INSERT INTO ENCOUNTER (team_1, team_2, encounter_date, processed, team_1_set_points, team_2_set_points)
+                    VALUES (?, ?, ?, ?, ?, ?)""", Statement.RETURN_GENERATED_KEYS)) {
+                for (Encounter encounter : encounters) {
+                    ps.setString(1, encounter.getTeam1());
+                    ps.setString(2, encounter.getTeam2());
+                    ps.setDate(3, Date.valueOf(encounter.getEncounterDate()));
+                    ps.setBoolean(4, encounter.isProcessed());
+                    ps.setInt(5, encounter.getTeam1SetPoints());
+                    ps.setInt(6, encounter.getTeam2SetPoints());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Encounter encounter : encounters) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Missing generated id for encounter " + encounter);
+                        }
+                        encounter.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Inserts the encounters, or updates the set points of the encounter with the same teams on the same date when it
+     * is not processed yet. Processed encounters are never changed.
+     */
+    public void upsertEncounters(List<Encounter> encounters) {
+        if (encounters.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO ENCOUNTER (team_1, team_2, encounter_date, processed, team_1_set_points, team_2_set_points)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        ON DUPLICATE KEY UPDATE
+                            team_1_set_points = IF(processed, team_1_set_points, VALUES(team_1_set_points)),
+                            team_2_set_points = IF(processed, team_2_set_points, VALUES(team_2_set_points))""",
+                encounters, encounters.size(), (ps, encounter) -> {
+                    ps.setString(1, encounter.getTeam1());
+                    ps.setString(2, encounter.getTeam2());
+                    ps.setDate(3, Date.valueOf(encounter.getEncounterDate()));
+                    ps.setBoolean(4, encounter.isProcessed());
+                    ps.setInt(5, encounter.getTeam1SetPoints());
+                    ps.setInt(6, encounter.getTeam2SetPoints());
+                });
+    }
+
+    /**
+     * Returns the encounters of the date by their {@code team_uniqness} key, see {@link #getTeamsKey(String, String)}.
+     * Only id, teams, set points and processed flag are read.
+     */
+    public Map<String, Encounter> findEncountersByTeams(LocalDate date) {
+        Map<String, Encounter> encounters = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT id, team_1, team_2, processed, team_1_set_points, team_2_set_points
+                        FROM ENCOUNTER
+                        WHERE encounter_date = ?""",
+                (RowCallbackHandler) rs -> {
+                    Encounter encounter = Encounter.builder()
+                            .id(rs.getInt(1))
+                            .team1(rs.getString(2))
+                            .team2(rs.getString(3))
+                            .encounterDate(date)
+                            .processed(rs.getBoolean(4))
+                            .team1SetPoints(rs.getInt(5))
+                            .team2SetPoints(rs.getInt(6))
+                            .build();
+                    encounters.put(getTeamsKey(encounter.getTeam1(), encounter.getTeam2()), encounter);
+                },
+                Date.valueOf(date));
+        return encounters;
+    }
+
+    public static String getTeamsKey(String team1, String team2) {
+        return team1 + "|" + team2;
+    }
+}
@@ -0,0 +1,123 @@
+package com.brs.backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Normalized team membership of the encounters, one row per player and encounter.
+ * <p>
+ * CREATE TABLE `ENCOUNTER_PARTICIPANT` (
+ *   `encounter_id` int NOT NULL,
+ *   `player_id` int NOT NULL,
+ *   `team_no` tinyint NOT NULL,
+ *   `encounter_date` date NOT NULL,
+ *   PRIMARY KEY (`encounter_id`, `player_id`),
+ *   KEY `encounter_participant_player_date` (`player_id`, `encounter_date`)
+ * )
+ */
+@Repository
+@RequiredArgsConstructor
+public class EncounterParticipantRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Participant(int encounterId, int playerId, int teamNo, LocalDate encounterDate) {
+    }
+
+    /**
+     * One row per participant of every processed encounter the player took part in, newest encounter first and
+     * participants ordered by team and player id.
+     */
+    public record ParticipantEncounterRow(int encounterId, LocalDate encounterDate, int team1SetPoints,
+                                          int team2SetPoints, Double calculatedScore, int playerTeamNo,
+                                          int participantId, int participantTeamNo) {
+    }
+
+    public void insertParticipants(List<Participant> participants) {
+        if (participants.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO ENCOUNTER_PARTICIPANT (encounter_id, player_id, team_no, encounter_date)
+                        VALUES (?, ?, ?, ?)""",
+                participants, participants.size(), (ps, participant) -> {
+                    ps.setInt(1, participant.encounterId());
+                    ps.setInt(2, participant.playerId());
+                    ps.setInt(3, participant.teamNo());
+                    ps.setDate(4, Date.valueOf(participant.encounterDate()));
+                });
+    }
+
+    /**
+     * Same as {@link #insertParticipants(List)} skipping the rows that already exist.
+     */
+    public void insertMissingParticipants(List<Participant> participants) {
+        if (participants.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT IGNORE INTO ENCOUNTER_PARTICIPANT (encounter_id, player_id, team_no, encounter_date)
+                        VALUES (?, ?, ?, ?)""",
+                participants, participants.size(), (ps, participant) -> {
+                    ps.setInt(1, participant.encounterId());
+                    ps.setInt(2, participant.playerId());
+                    ps.setInt(3, participant.teamNo());
+                    ps.setDate(4, Date.valueOf(participant.encounterDate()));
+                });
+    }
+
+    public List<ParticipantEncounterRow> findProcessedEncounterRowsByPlayerId(int playerId) {
+        return findProcessedEncounterRows(playerId, "");
+    }
+
+    /**
+     * Same as {@link #findProcessedEncounterRowsByPlayerId(int)} restricted to the given encounters.
+     */
+    public List<ParticipantEncounterRow> findProcessedEncounterRowsByPlayerId(int playerId, int[] encounterIds) {
+        if (encounterIds.length == 0) {
+            return List.of();
+        }
+        var ids = new StringJoiner(", ", "AND me.encounter_id IN (", ")");
+        for (int encounterId : encounterIds) {
+            ids.add(Integer.toString(encounterId));
+        }
+        return findProcessedEncounterRows(playerId, ids.toString());
+    }
+
+    /**
+     * Calls back with player id, team number and encounter id of every participant of a processed encounter, ordered
+     * by player, team and encounter id.
+     */
+    public void streamProcessedParticipants(RowCallbackHandler rowCallbackHandler) {
+        jdbcTemplate.query("""
+                SELECT ep.player_id, ep.team_no, ep.encounter_id
+                FROM ENCOUNTER_PARTICIPANT ep
+                JOIN ENCOUNTER e ON e.id = ep.encounter_id AND e.processed = 1
+                ORDER BY ep.player_id, ep.team_no, ep.encounter_id""", rowCallbackHandler);
+    }
+
+    private List<ParticipantEncounterRow> findProcessedEncounterRows(int playerId, String encounterFilter) {
+        var rows = new ArrayList<ParticipantEncounterRow>();
+        jdbcTemplate.query("""
+                        SELECT e.id, e.encounter_date, e.team_1_set_points, e.team_2_set_points, e.calculated_score,
+                               me.team_no, other.player_id, other.team_no
+                        FROM ENCOUNTER_PARTICIPANT me
+                        JOIN ENCOUNTER e ON e.id = me.encounter_id AND e.processed = 1
+                        JOIN ENCOUNTER_PARTICIPANT other ON other.encounter_id = me.encounter_id
+                        WHERE me.player_id = ? %s
+                        ORDER BY me.encounter_date DESC, me.encounter_id DESC, other.team_no, other.player_id""".formatted(encounterFilter),
+                (RowCallbackHandler) rs -> rows.add(new ParticipantEncounterRow(rs.getInt(1),
+                        rs.getDate(2).toLocalDate(), rs.getInt(3), rs.getInt(4),
+                        rs.getObject(5, Double.class), rs.getInt(6), rs.getInt(7), rs.getInt(8))),
+                playerId);
+        return rows;
+    }
+}
@@ -1,18 +1,44 @@
 package com.brs.backend.repositories;
 
 import com.brs.backend.model.Encounter;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 public interface EncounterRepository extends JpaRepository<Encounter, Integer> {
 
     List<Encounter> findAllByEncounterDate(LocalDate date);
 
+    /**
+     * Same as {@link #findAllByEncounterDate(LocalDate)} locking the rows until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT en FROM ENCOUNTER en WHERE en.encounterDate = :date")
+    List<Encounter> findAllByEncounterDateForUpdate(LocalDate date);
+
     List<Encounter> findAllByIdIn(List<Integer> encounterIds);
 
     @Query("SELECT DISTINCT en.encounterDate FROM ENCOUNTER en order by en.encounterDate desc")
     List<LocalDate> findAllDistinctEncounterDateOrdered();
+
+    /**
+     * The game day {@code offset} days before the latest one up to the given date, if there were that many.
+     */
+    @Query(value = """
+            SELECT DISTINCT encounter_date FROM ENCOUNTER
+            WHERE encounter_date <= :date
+            ORDER BY encounter_date DESC
+            LIMIT 1 OFFSET :offset""", nativeQuery = true)
+    Optional<LocalDate> findDistinctEncounterDateUpTo(LocalDate date, int offset);
+
+    @Query("SELECT DISTINCT en.encounterDate FROM ENCOUNTER en WHERE en.processed = true order by en.encounterDate")
+    List<LocalDate> findAllDistinctProcessedEncounterDateOrdered();
+
+    @Query("SELECT DISTINCT en.encounterDate FROM ENCOUNTER en WHERE en.processed = false order by en.encounterDate")
+    List<LocalDate> findAllDistinctUnprocessedEncounterDateOrdered();
 }
@@ -0,0 +1,72 @@
+package com.brs.backend.repositories;
+
+import com.brs.backend.dto.ExportDataset;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Cursor based reads of whole tables for the exports. Rows are handed over one by one from a streaming result set,
+ * ordered by id so an incremental pull can continue after the last id it received.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExportRepository {
+
+    private static final String ENCOUNTERS_QUERY = """
+            SELECT id, encounter_date, team_1, team_2, team_1_set_points, team_2_set_points, processed, calculated_score
+            FROM ENCOUNTER
+            WHERE id > ? AND encounter_date >= ?
+            ORDER BY id""";
+
+    private static final String SCORE_HISTORY_QUERY = """
+            SELECT id, player_id, encounter_id, old_rank_score, new_rank_score, player_old_rank, player_new_rank,
+                   encounter_date
+            FROM SCORE_HISTORY
+            WHERE id > ? AND encounter_date >= ?
+            ORDER BY id""";
+
+    // Emails are left out on purpose, the exports are public
+    private static final String PLAYERS_QUERY = """
+            SELECT id, name, rank_score, player_rank, highest_rank, rank_since, player_status, color_hex
+            FROM PLAYER
+            WHERE id > ?
+            ORDER BY id""";
+
+    private static final LocalDate NO_DATE_LIMIT = LocalDate.of(1970, 1, 1);
+
+    private final StreamingQuery streamingQuery;
+
+    /**
+     * Streams the rows of the dataset with an id above {@code sinceId} and, for dated datasets, a date on or after
+     * {@code sinceDate}. Both limits are optional.
+     */
+    public void stream(ExportDataset dataset, Integer sinceId, LocalDate sinceDate, RowCallbackHandler rowCallbackHandler) {
+        stream(dataset, sinceId, sinceDate, metaData -> {
+        }, rowCallbackHandler);
+    }
+
+    /**
+     * Same as {@link #stream(ExportDataset, Integer, LocalDate, RowCallbackHandler)}, handing the columns to
+     * {@code columnsCallback} first, also when no row matches.
+     */
+    public void stream(ExportDataset dataset, Integer sinceId, LocalDate sinceDate,
+                       StreamingQuery.ColumnsCallback columnsCallback, RowCallbackHandler rowCallbackHandler) {
+        int fromId = sinceId == null ? 0 : sinceId;
+        Date fromDate = Date.valueOf(sinceDate == null ? NO_DATE_LIMIT : sinceDate);
+        String query = switch (dataset) {
+            case ENCOUNTERS -> ENCOUNTERS_QUERY;
+            case SCORE_HISTORY -> SCORE_HISTORY_QUERY;
+            case PLAYERS -> PLAYERS_QUERY;
+        };
+        streamingQuery.stream(dataset.name(), query, statement -> {
+            statement.setInt(1, fromId);
+            if (dataset != ExportDataset.PLAYERS) {
+                statement.setDate(2, fromDate);
+            }
+        }, columnsCallback, rowCallbackHandler);
+    }
+}
@@ -0,0 +1,77 @@
+package com.brs.backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-algorithm rating state of the alternative rating models, kept apart from PLAYER and SCORE_HISTORY.
+ * <p>
+ * CREATE TABLE `PLAYER_RATING` (
+ *   `algorithm` varchar(32) NOT NULL,
+ *   `player_id` int NOT NULL,
+ *   `rating` double NOT NULL,
+ *   `rating_deviation` double NOT NULL,
+ *   `volatility` double NOT NULL,
+ *   `rated_until` date NOT NULL,
+ *   PRIMARY KEY (`algorithm`, `player_id`)
+ * )
+ */
+@Repository
+@RequiredArgsConstructor
+public class PlayerRatingRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record RatingState(int playerId, double rating, double ratingDeviation, double volatility) {
+    }
+
+    /**
+     * Returns the stored state of the algorithm for every player. Players without state yet start from their current
+     * rank score and the given default deviation and volatility.
+     */
+    public Map<Integer, RatingState> findRatings(String algorithm, double defaultRatingDeviation, double defaultVolatility) {
+        Map<Integer, RatingState> ratings = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT p.id,
+                               COALESCE(pr.rating, p.rank_score),
+                               COALESCE(pr.rating_deviation, ?),
+                               COALESCE(pr.volatility, ?)
+                        FROM PLAYER p
+                        LEFT JOIN PLAYER_RATING pr ON pr.player_id = p.id AND pr.algorithm = ?""",
+                (RowCallbackHandler) rs -> ratings.put(rs.getInt(1),
+                        new RatingState(rs.getInt(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4))),
+                defaultRatingDeviation, defaultVolatility, algorithm);
+        return ratings;
+    }
+
+    /**
+     * Upserts the current state and appends a history row per player for the rated period.
+     */
+    public void saveRatings(String algorithm, LocalDate periodDate, List<RatingState> ratings) {
+        if (ratings.isEmpty()) {
+            return;
+        }
+        Date ratedUntil = Date.valueOf(periodDate);
+        List<Object[]> rows = new ArrayList<>(ratings.size());
+        for (RatingState rating : ratings) {
+            rows.add(new Object[]{algorithm, rating.playerId(), rating.rating(), rating.ratingDeviation(), rating.volatility(), ratedUntil});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO PLAYER_RATING (algorithm, player_id, rating, rating_deviation, volatility, rated_until)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE rating = VALUES(rating), rating_deviation = VALUES(rating_deviation),
+                                        volatility = VALUES(volatility), rated_until = VALUES(rated_until)""", rows);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO PLAYER_RATING_HISTORY (algorithm, player_id, rating, rating_deviation, volatility, rating_date)
+                VALUES (?, ?, ?, ?, ?, ?)""", rows);
+    }
+}
@@ -0,0 +1,44 @@
+package com.brs.backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Last game day whose processing committed. The row is written in the transaction of the date, so it never points
+ * past what is actually stored.
+ * <p>
+ * CREATE TABLE `PROCESSING_CHECKPOINT` (
+ *   `name` varchar(32) NOT NULL,
+ *   `last_processed_date` date NOT NULL,
+ *   `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+ *   PRIMARY KEY (`name`)
+ * )
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProcessingCheckpointRepository {
+
+    private static final String ENCOUNTER_PROCESSING = "ENCOUNTER_PROCESSING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<LocalDate> findLastProcessedDate() {
+        List<LocalDate> dates = jdbcTemplate.query(
+                "SELECT last_processed_date FROM PROCESSING_CHECKPOINT WHERE name = ?",
+                (rs, rowNum) -> rs.getDate(1).toLocalDate(), ENCOUNTER_PROCESSING);
+        return dates.stream().findFirst();
+    }
+
+    public void saveLastProcessedDate(LocalDate date) {
+        jdbcTemplate.update("""
+                        INSERT INTO PROCESSING_CHECKPOINT (name, last_processed_date) VALUES (?, ?)
+                        ON DUPLICATE KEY UPDATE last_processed_date = GREATEST(last_processed_date, VALUES(last_processed_date))""",
+                ENCOUNTER_PROCESSING, Date.valueOf(date));
+    }
+}
@@ -0,0 +1,136 @@
+package com.brs.backend.repositories;
+
+import com.brs.backend.common.AfterCommit;
+import com.brs.backend.core.ScoreHistoryBuffer;
+import com.brs.backend.model.Player;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC access used by the rating replay. Reads are streamed row by row and writes go through JDBC batches,
+ * so no entity is created for any encounter or history row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReplayRepository {
+
+    public static final String SHADOW_SCORE_HISTORY_TABLE = "SCORE_HISTORY_REPLAY";
+    public static final String SHADOW_PLAYER_TABLE = "PLAYER_REPLAY";
+
+    private static final String ENCOUNTER_STREAM_QUERY = """
+            SELECT id, team_1, team_2, encounter_date, team_1_set_points, team_2_set_points
+            FROM ENCOUNTER
+            WHERE processed = 1
+            ORDER BY encounter_date, id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final StreamingQuery streamingQuery;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Streams every processed encounter in date and id order. The stream runs on its own connection, so the caller is free to
+     * keep writing through the transactional connection while rows are still being read.
+     */
+    public void streamEncounters(RowCallbackHandler rowCallbackHandler) {
+        streamingQuery.stream("encounters", ENCOUNTER_STREAM_QUERY, statement -> {
+        }, rowCallbackHandler);
+    }
+
+    /**
+     * Returns the score every player started with : the old score of their first history row, or the current score
+     * for players without history.
+     */
+    public Map<Integer, Double> findInitialScores() {
+        Map<Integer, Double> initialScores = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT p.id, COALESCE(sh.old_rank_score, p.rank_score)
+                FROM PLAYER p
+                LEFT JOIN (SELECT player_id, MIN(id) AS first_id FROM SCORE_HISTORY GROUP BY player_id) f
+                       ON f.player_id = p.id
+                LEFT JOIN SCORE_HISTORY sh ON sh.id = f.first_id""",
+                (RowCallbackHandler) rs -> initialScores.put(rs.getInt(1), rs.getDouble(2)));
+        return initialScores;
+    }
+
+    public void prepareShadowTables() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + SHADOW_SCORE_HISTORY_TABLE + " LIKE SCORE_HISTORY");
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS %s (
+                  `player_id` int NOT NULL,
+                  `rank_score` double NOT NULL,
+                  `player_rank` int DEFAULT NULL,
+                  `highest_rank` int DEFAULT NULL,
+                  `rank_since` date DEFAULT NULL,
+                  `player_status` varchar(16) DEFAULT NULL,
+                  PRIMARY KEY (`player_id`)
+                )""".formatted(SHADOW_PLAYER_TABLE));
+        jdbcTemplate.execute("TRUNCATE TABLE " + SHADOW_SCORE_HISTORY_TABLE);
+        jdbcTemplate.execute("TRUNCATE TABLE " + SHADOW_PLAYER_TABLE);
+    }
+
+    public void deleteScoreHistory() {
+        jdbcTemplate.update("DELETE FROM SCORE_HISTORY");
+    }
+
+    public void insertScoreHistory(String table, ScoreHistoryBuffer buffer) {
+        if (buffer.size() == 0) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO %s (player_id, encounter_id, old_rank_score, new_rank_score,
+                                player_old_rank, player_new_rank, encounter_date)
+                VALUES (?, ?, ?, ?, ?, ?, ?)""".formatted(table), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int row) throws SQLException {
+                ps.setInt(1, buffer.getPlayerId(row));
+                ps.setInt(2, buffer.getEncounterId(row));
+                ps.setDouble(3, buffer.getOldRankScore(row));
+                ps.setDouble(4, buffer.getNewRankScore(row));
+                ps.setInt(5, buffer.getPlayerOldRank(row));
+                ps.setInt(6, buffer.getPlayerNewRank(row));
+                ps.setDate(7, Date.valueOf(buffer.getEncounterDate(row)));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return buffer.size();
+            }
+        });
+    }
+
+    /**
+     * Writes the replayed player state, either over the live PLAYER rows or into the shadow player table.
+     * Each row holds id, rank score, player rank, highest rank, rank since and status, in that order.
+     */
+    public void writePlayers(boolean live, List<Object[]> rows) {
+        if (live) {
+            jdbcTemplate.batchUpdate("""
+                    UPDATE PLAYER SET rank_score = ?, player_rank = ?, highest_rank = ?, rank_since = ?, player_status = ?
+                    WHERE id = ?""", rows.stream()
+                    .map(r -> new Object[]{r[1], r[2], r[3], r[4], r[5], r[0]})
+                    .toList());
+            evictPlayers();
+        } else {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO %s (player_id, rank_score, player_rank, highest_rank, rank_since, player_status)
+                    VALUES (?, ?, ?, ?, ?, ?)""".formatted(SHADOW_PLAYER_TABLE), rows);
+        }
+    }
+
+    // The live rows are written behind Hibernate's back, cached players must be read again after the replay
+    private void evictPlayers() {
+        entityManagerFactory.getCache().evict(Player.class);
+        AfterCommit.run(() -> entityManagerFactory.getCache().evict(Player.class));
+    }
+}
@@ -0,0 +1,150 @@
+package com.brs.backend.repositories;
+
+import com.brs.backend.common.AfterCommit;
+import com.brs.backend.core.LeaderboardIndex;
+import com.brs.backend.model.Player;
+import com.brs.backend.model.ScoreHistory;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Set-based write path used while processing encounters. Every method issues a constant number of statements
+ * regardless of how many rows it touches.
+ * <p>
+ * Entities handed to the update methods are detached first, so the changes made on them in memory are written
+ * once by the bulk statement and not a second time by Hibernate's dirty checking. Player rows written here bypass the
+ * second-level cache, their entries are evicted right away and again once the transaction committed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ScoreBatchRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void insertScoreHistory(List<ScoreHistory> scoreHistories) {
+        if (scoreHistories.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO SCORE_HISTORY (player_id, encounter_id, old_rank_score, new_rank_score,
+                                                   player_old_rank, player_new_rank, encounter_date)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)""",
+                scoreHistories, MAX_ROWS_PER_STATEMENT, (ps, history) -> {
+                    ps.setInt(1, history.getPlayerId());
+                    ps.setInt(2, history.getEncounterId());
+                    ps.setDouble(3, history.getOldRankScore());
+                    ps.setDouble(4, history.getNewRankScore());
+                    ps.setInt(5, history.getPlayerOldRank());
+                    ps.setInt(6, history.getPlayerNewRank());
+                    ps.setDate(7, Date.valueOf(history.getEncounterDate()));
+                });
+    }
+
+    /**
+     * Writes score, rank, highest rank, rank since and status of the given players with one
+     * {@code UPDATE ... CASE} statement per chunk.
+     */
+    public void updatePlayers(List<Player> players) {
+        if (players.isEmpty()) {
+            return;
+        }
+        players.forEach(entityManager::detach);
+        updateByCase("PLAYER", players, Player::getId, List.of(
+                new CaseColumn<Player>("rank_score", Player::getRankScore),
+                new CaseColumn<Player>("player_rank", Player::getPlayerRank),
+                new CaseColumn<Player>("highest_rank", Player::getHighestRank),
+                new CaseColumn<Player>("rank_since", p -> p.getRankSince() == null ? null : Date.valueOf(p.getRankSince())),
+                new CaseColumn<Player>("player_status", p -> p.getStatus() == null ? null : p.getStatus().name())
+        ));
+        evictPlayers(players.stream().map(Player::getId).toList());
+    }
+
+    /**
+     * Writes rank, highest rank and rank since of the players whose ranking changed.
+     */
+    public void updateRanks(List<LeaderboardIndex.RankChange> rankChanges) {
+        if (rankChanges.isEmpty()) {
+            return;
+        }
+        updateByCase("PLAYER", rankChanges, LeaderboardIndex.RankChange::playerId, List.of(
+                new CaseColumn<LeaderboardIndex.RankChange>("player_rank", LeaderboardIndex.RankChange::rank),
+                new CaseColumn<LeaderboardIndex.RankChange>("highest_rank", LeaderboardIndex.RankChange::highestRank),
+                new CaseColumn<LeaderboardIndex.RankChange>("rank_since", c -> c.rankSince() == null ? null : Date.valueOf(c.rankSince()))
+        ));
+        evictPlayers(rankChanges.stream().map(LeaderboardIndex.RankChange::playerId).toList());
+    }
+
+    private void evictPlayers(List<Integer> playerIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        playerIds.forEach(id -> cache.evict(Player.class, id));
+        // Another transaction may have cached the old row while this one was still running
+        AfterCommit.run(() -> playerIds.forEach(id -> cache.evict(Player.class, id)));
+    }
+
+    /**
+     * Marks the given encounters as processed and stores their calculated score.
+     */
+    public void markEncountersProcessed(Map<Integer, Double> calculatedScores) {
+        if (calculatedScores.isEmpty()) {
+            return;
+        }
+        updateByCase("ENCOUNTER", new ArrayList<>(calculatedScores.entrySet()), Map.Entry::getKey, List.of(
+                new CaseColumn<Map.Entry<Integer, Double>>("processed", e -> true),
+                new CaseColumn<Map.Entry<Integer, Double>>("calculated_score", Map.Entry::getValue)
+        ));
+    }
+
+    /**
+     * Copies the current rank of every active player into {@code player_new_rank} of that player's history
+     * rows for the given date.
+     */
+    public int stampNewRanks(LocalDate encounterDate) {
+        return jdbcTemplate.update("""
+                UPDATE SCORE_HISTORY sh
+                JOIN PLAYER p ON p.id = sh.player_id
+                SET sh.player_new_rank = p.player_rank
+                WHERE sh.encounter_date = ?
+                  AND p.player_status = 'ACTIVE'""", Date.valueOf(encounterDate));
+    }
+
+    private <T> void updateByCase(String table, List<T> rows, Function<T, Integer> idExtractor, List<CaseColumn<T>> columns) {
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<T> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_STATEMENT));
+            var sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+            var args = new ArrayList<>();
+            for (int c = 0; c < columns.size(); c++) {
+                CaseColumn<T> column = columns.get(c);
+                sql.append(c == 0 ? "" : ", ").append(column.name()).append(" = CASE id");
+                for (T row : chunk) {
+                    sql.append(" WHEN ? THEN ?");
+                    args.add(idExtractor.apply(row));
+                    args.add(column.valueExtractor().apply(row));
+                }
+                sql.append(" ELSE ").append(column.name()).append(" END");
+            }
+            sql.append(" WHERE id IN (").append(String.join(", ", Collections.nCopies(chunk.size(), "?"))).append(")");
+            chunk.forEach(row -> args.add(idExtractor.apply(row)));
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
+    private record CaseColumn<T>(String name, Function<T, Object> valueExtractor) {
+    }
+}
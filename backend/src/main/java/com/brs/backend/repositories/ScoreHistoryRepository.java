@@ -1,7 +1,10 @@
 package com.brs.backend.repositories;
 
+import com.brs.backend.dto.PlayerHistoryRow;
+import com.brs.backend.dto.PlayerStatus;
 import com.brs.backend.model.ScoreHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -14,4 +17,68 @@ public interface ScoreHistoryRepository extends JpaRepository<ScoreHistory, Inte
     List<ScoreHistory> findAllByPlayerIdAndEncounterDate(Integer playerId, LocalDate encounterDate);
 
     Optional<ScoreHistory> findFirstByPlayerIdOrderByEncounterDateDesc(Integer playerId);
+
+    /**
+     * The old rank of every player's latest history row, in one query.
+     */
+    @Query(value = """
+            SELECT player_id AS playerId, player_old_rank AS playerOldRank
+            FROM (SELECT player_id, player_old_rank,
+                         ROW_NUMBER() OVER (PARTITION BY player_id ORDER BY encounter_date DESC, id DESC) AS rn
+                  FROM SCORE_HISTORY) latest
+            WHERE rn = 1""", nativeQuery = true)
+    List<PlayerOldRank> findLatestPlayerOldRanks();
+
+    @Query("""
+            SELECT new com.brs.backend.dto.PlayerHistoryRow(p.id, p.name, sh.encounterId, sh.encounterDate,
+                   sh.playerOldRank, sh.playerNewRank, sh.oldRankScore, sh.newRankScore)
+            FROM PLAYER p
+            LEFT JOIN SCORE_HISTORY sh ON sh.playerId = p.id
+            WHERE p.status = :status
+            ORDER BY p.id, sh.encounterDate, sh.id""")
+    List<PlayerHistoryRow> findAllHistoryByPlayerStatusOrderByDate(PlayerStatus status);
+
+    @Query("""
+            SELECT new com.brs.backend.dto.PlayerHistoryRow(p.id, p.name, sh.encounterId, sh.encounterDate,
+                   sh.playerOldRank, sh.playerNewRank, sh.oldRankScore, sh.newRankScore)
+            FROM PLAYER p
+            LEFT JOIN SCORE_HISTORY sh ON sh.playerId = p.id
+            WHERE p.status = :status
+            ORDER BY p.id, sh.encounterId, sh.id""")
+    List<PlayerHistoryRow> findAllHistoryByPlayerStatusOrderByEncounter(PlayerStatus status);
+
+    /**
+     * The date of every player's latest played encounter, special history rows like absentee deductions excluded.
+     * Players who never played are not returned.
+     */
+    @Query(value = """
+            SELECT player_id AS playerId, MAX(encounter_date) AS lastActiveDate
+            FROM SCORE_HISTORY
+            WHERE encounter_id > 0
+            GROUP BY player_id""", nativeQuery = true)
+    List<PlayerLastActiveDate> findPlayerLastActiveDates();
+
+    /**
+     * The date of every player's latest history row of any kind, the date their stored score was last brought up to date.
+     * Like {@link #findPlayerLastActiveDates()} only players who played an encounter are returned, the others are never
+     * charged as absentees.
+     */
+    @Query(value = """
+            SELECT player_id AS playerId, MAX(encounter_date) AS lastActiveDate
+            FROM SCORE_HISTORY
+            GROUP BY player_id
+            HAVING MAX(encounter_id) > 0""", nativeQuery = true)
+    List<PlayerLastActiveDate> findPlayerLastScoredDates();
+
+    interface PlayerLastActiveDate {
+        Integer getPlayerId();
+
+        LocalDate getLastActiveDate();
+    }
+
+    interface PlayerOldRank {
+        Integer getPlayerId();
+
+        Integer getPlayerOldRank();
+    }
 }
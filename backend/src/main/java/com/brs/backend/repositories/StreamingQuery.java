@@ -0,0 +1,60 @@
+package com.brs.backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Runs a query on a MySQL streaming cursor and hands the rows over one by one, without holding the result in memory.
+ * The query runs on its own connection, so the caller is free to keep writing through the transactional connection
+ * while rows are still being read.
+ */
+@Component
+@RequiredArgsConstructor
+public class StreamingQuery {
+
+    /**
+     * Receives the columns of the result before the first row, also when there are no rows.
+     */
+    @FunctionalInterface
+    public interface ColumnsCallback {
+        void processColumns(ResultSetMetaData metaData) throws SQLException;
+    }
+
+    private final DataSource dataSource;
+
+    public void stream(String name, String sql, PreparedStatementSetter parameters, RowCallbackHandler rowCallbackHandler) {
+        stream(name, sql, parameters, metaData -> {
+        }, rowCallbackHandler);
+    }
+
+    /**
+     * Streams the rows of the query, {@code name} only tells what failed in the exception message.
+     */
+    public void stream(String name, String sql, PreparedStatementSetter parameters, ColumnsCallback columnsCallback,
+                       RowCallbackHandler rowCallbackHandler) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL streams the result set row by row only with this fetch size
+            statement.setFetchSize(Integer.MIN_VALUE);
+            parameters.setValues(statement);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                columnsCallback.processColumns(resultSet.getMetaData());
+                while (resultSet.next()) {
+                    rowCallbackHandler.processRow(resultSet);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Streaming " + name + " failed", e);
+        }
+    }
+}
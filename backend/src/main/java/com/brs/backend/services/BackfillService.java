@@ -0,0 +1,91 @@
+package com.brs.backend.services;
+
+import com.brs.backend.core.RatingTable;
+import com.brs.backend.core.RatingsUpdatedEvent;
+import com.brs.backend.dto.BackfillResult;
+import com.brs.backend.dto.ProcessingStage;
+import com.brs.backend.repositories.EncounterRepository;
+import com.brs.backend.repositories.ProcessingCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Processes every date with unprocessed encounters in a range, oldest first, in a single run.
+ * <p>
+ * The ratings are loaded once and kept in memory from one date to the next. Every date commits in its own
+ * transaction together with the processing checkpoint, so a failure keeps all dates before it and running the
+ * backfill again resumes with the failed date. The read models are refreshed once when the run ends, or after the
+ * last committed date when it fails.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackfillService {
+
+    private final EncounterRepository encounterRepository;
+
+    private final EncounterProcessingService encounterProcessingService;
+
+    private final ProcessingCheckpointRepository processingCheckpointRepository;
+
+    private final PlayerService playerService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Returns the dates a backfill of the range would process, oldest first. Both bounds are optional.
+     */
+    public List<LocalDate> getPendingDates(LocalDate from, LocalDate to) {
+        return encounterRepository.findAllDistinctUnprocessedEncounterDateOrdered().stream()
+                .filter(date -> from == null || !date.isBefore(from))
+                .filter(date -> to == null || !date.isAfter(to))
+                .toList();
+    }
+
+    /**
+     * Processes the pending dates of the range, reporting the date and stage to the listener as they start.
+     */
+    public BackfillResult backfill(LocalDate from, LocalDate to, BiConsumer<LocalDate, ProcessingStage> progressListener) {
+        long start = System.currentTimeMillis();
+        LocalDate checkpoint = processingCheckpointRepository.findLastProcessedDate().orElse(null);
+        List<LocalDate> dates = getPendingDates(from, to);
+        if (dates.isEmpty()) {
+            log.info("Nothing to backfill between {} and {}", from, to);
+            return new BackfillResult(checkpoint, 0, 0, checkpoint, System.currentTimeMillis() - start);
+        }
+        if (checkpoint != null && !dates.getFirst().isAfter(checkpoint)) {
+            // Ratings build on each other, a date older than one already processed can not be rated anymore
+            throw new IllegalArgumentException("Unprocessed encounters on " + dates.getFirst()
+                    + " are not after the last processed date " + checkpoint);
+        }
+        log.info("Backfilling {} dates from {} to {}, last processed date was {}", dates.size(), dates.getFirst(), dates.getLast(), checkpoint);
+
+        RatingTable ratingTable = RatingTable.load(playerService.getAllPlayers());
+        int encounters = 0;
+        LocalDate lastProcessedDate = checkpoint;
+        try {
+            for (LocalDate date : dates) {
+                Integer dateEncounters = transactionTemplate.execute(status -> encounterProcessingService.processBackfillDate(
+                        date, ratingTable, stage -> progressListener.accept(date, stage)));
+                encounters += dateEncounters == null ? 0 : dateEncounters;
+                lastProcessedDate = date;
+                log.info("Backfilled date {}", date);
+            }
+        } finally {
+            // One refresh for the whole run, rebuilding the read models per date would cost a full reload each time
+            if (lastProcessedDate != checkpoint) {
+                eventPublisher.publishEvent(new RatingsUpdatedEvent(lastProcessedDate));
+            }
+        }
+        return new BackfillResult(checkpoint, dates.size(), encounters, lastProcessedDate, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,202 @@
+package com.brs.backend.services;
+
+import com.brs.backend.common.DataVersion;
+import com.brs.backend.dto.EncounterResult;
+import com.brs.backend.dto.FileIngestionResult;
+import com.brs.backend.dto.IngestionSummary;
+import com.brs.backend.util.EncounterUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Ingests a zip archive of encounter sheets, one {@code encounter_<yyyy-mm-dd>.csv} per game day.
+ * <p>
+ * The upload is spooled to a temporary file and read through {@link ZipFile}, so the archive is never held in memory.
+ * Sheets are parsed in parallel, a few dates ahead of the insertion, and the encounters of every date are inserted in
+ * one batch in date order. At most {@code workers * 2} parsed dates are waiting at any time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EncounterIngestionService {
+
+    private final EncounterUtil encounterUtil;
+
+    private final EncounterService encounterService;
+
+    private final DataVersion dataVersion;
+
+    // Number of sheets parsed in parallel
+    @Value("${ingestion.workers:4}")
+    private int workers;
+
+    private ExecutorService executorService;
+
+    private record ParsedSheet(String fileName, List<EncounterResult> results, String error) {
+    }
+
+    private record ParsedDate(LocalDate date, List<ParsedSheet> sheets) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        executorService = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("ingestion-", 1).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    public IngestionSummary ingestArchive(MultipartFile archive) {
+        long start = System.currentTimeMillis();
+        Path spooled = null;
+        try {
+            spooled = Files.createTempFile("encounters-", ".zip");
+            archive.transferTo(spooled);
+            try (ZipFile zipFile = new ZipFile(spooled.toFile(), StandardCharsets.UTF_8)) {
+                return ingest(zipFile, start);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Reading the encounter archive failed", e);
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    private IngestionSummary ingest(ZipFile zipFile, long start) {
+        var results = new ArrayList<FileIngestionResult>();
+        Map<LocalDate, List<ZipEntry>> entriesByDate = new TreeMap<>();
+        var entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String fileName = getFileName(entry);
+            try {
+                LocalDate date = encounterUtil.parseEncounterFileDate(fileName);
+                entriesByDate.computeIfAbsent(date, d -> new ArrayList<>()).add(entry);
+            } catch (RuntimeException e) {
+                results.add(new FileIngestionResult(fileName, null, 0, e.getMessage()));
+            }
+        }
+
+        int encounters = 0;
+        Deque<Future<ParsedDate>> pending = new ArrayDeque<>();
+        var dates = entriesByDate.entrySet().iterator();
+        int window = workers * 2;
+        try {
+            while (dates.hasNext() || !pending.isEmpty()) {
+                while (dates.hasNext() && pending.size() < window) {
+                    var date = dates.next();
+                    pending.add(executorService.submit(() -> parseDate(zipFile, date.getKey(), date.getValue())));
+                }
+                encounters += insertDate(pending.poll().get(), results);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Encounter archive ingestion interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Parsing the encounter archive failed", e.getCause());
+        } finally {
+            pending.forEach(f -> f.cancel(true));
+        }
+
+        if (encounters > 0) {
+            dataVersion.bump();
+        }
+        int failedFiles = (int) results.stream().filter(r -> r.error() != null).count();
+        log.info("Ingested {} encounters from {} files, {} failed", encounters, results.size(), failedFiles);
+        return new IngestionSummary(results.size(), failedFiles, encounters, System.currentTimeMillis() - start, results);
+    }
+
+    private ParsedDate parseDate(ZipFile zipFile, LocalDate date, List<ZipEntry> entries) {
+        var sheets = new ArrayList<ParsedSheet>(entries.size());
+        for (ZipEntry entry : entries) {
+            var results = new ArrayList<EncounterResult>();
+            try (Reader reader = new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8)) {
+                encounterUtil.parseCsvEncounters(reader, results::add);
+                sheets.add(new ParsedSheet(getFileName(entry), results, null));
+            } catch (IOException | RuntimeException e) {
+                sheets.add(new ParsedSheet(getFileName(entry), List.of(), "Parsing failed : " + e.getMessage()));
+            }
+        }
+        return new ParsedDate(date, sheets);
+    }
+
+    /**
+     * Inserts the sheets of the date in one transaction. A date is inserted entirely or not at all : when one of its
+     * sheets could not be parsed or the insertion fails, none of its encounters are inserted and every sheet of the
+     * date reports an error.
+     */
+    private int insertDate(ParsedDate parsedDate, List<FileIngestionResult> results) {
+        List<ParsedSheet> failedSheets = parsedDate.sheets().stream().filter(s -> s.error() != null).toList();
+        if (!failedSheets.isEmpty()) {
+            // A partial game day would be rated without the missing sheets, the whole day waits for a corrected upload
+            for (ParsedSheet sheet : parsedDate.sheets()) {
+                String error = sheet.error() != null ? sheet.error()
+                        : "Not inserted, another sheet of " + parsedDate.date() + " could not be parsed";
+                results.add(new FileIngestionResult(sheet.fileName(), parsedDate.date(), 0, error));
+            }
+            log.warn("Skipped date {}, {} of its sheets could not be parsed", parsedDate.date(), failedSheets.size());
+            return 0;
+        }
+        var encounterResults = new ArrayList<EncounterResult>();
+        parsedDate.sheets().forEach(s -> encounterResults.addAll(s.results()));
+        try {
+            encounterService.addEncounters(parsedDate.date(), encounterResults);
+        } catch (RuntimeException e) {
+            log.error("Inserting encounters for date {} failed with error [{}]", parsedDate.date(), e.getMessage());
+            parsedDate.sheets().forEach(s -> results.add(new FileIngestionResult(s.fileName(), parsedDate.date(), 0, e.getMessage())));
+            return 0;
+        }
+        parsedDate.sheets().forEach(s -> results.add(new FileIngestionResult(s.fileName(), parsedDate.date(), s.results().size(), null)));
+        log.info("Inserted {} encounters for date {}", encounterResults.size(), parsedDate.date());
+        return encounterResults.size();
+    }
+
+    private static String getFileName(ZipEntry entry) {
+        String name = entry.getName();
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled archive {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.brs.backend.services;
+
+import com.brs.backend.common.AfterCommit;
+import com.brs.backend.core.InactivityDecay;
+import com.brs.backend.core.LeaderboardIndex;
+import com.brs.backend.core.RankScoreCalculator;
+import com.brs.backend.core.RankScoreCalculatorProvider;
+import com.brs.backend.core.RatingTable;
+import com.brs.backend.core.RatingsUpdatedEvent;
+import com.brs.backend.core.ScorePersister;
+import com.brs.backend.core.ShadowRatingModel;
+import com.brs.backend.dto.EncounterResultV2;
+import com.brs.backend.dto.PlayerRatingChange;
+import com.brs.backend.dto.ProcessingStage;
+import com.brs.backend.dto.SimulationResult;
+import com.brs.backend.model.Encounter;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.EncounterRepository;
+import com.brs.backend.repositories.ProcessingCheckpointRepository;
+import com.brs.backend.util.PlayerUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EncounterProcessingService {
+
+    private final EncounterRepository encounterRepository;
+
+    private final RankScoreCalculatorProvider rankScoreCalculatorProvider;
+
+    private final PlayerService playerService;
+
+    private final ScoreHistoryService scoreHistoryService;
+
+    private final ScorePersister scorePersister;
+
+    private final PlayerUtil playerUtil;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LeaderboardIndex leaderboardIndex;
+
+    private final ProcessingCheckpointRepository processingCheckpointRepository;
+
+    private final InactivityDecay inactivityDecay;
+
+    private final PlatformTransactionManager transactionManager;
+
+    // Hypothetical encounters are never stored, they get ids that can not clash with real or special history ids
+    private static final int SIMULATED_ENCOUNTER_ID_BASE = -1000;
+
+    // When enabled all ratings are loaded once and every update for the date is applied in memory before a single flush
+    @Value("${processing.in-memory:true}")
+    private boolean inMemory;
+
+    @Transactional
+    public void processEncounters(LocalDate date) {
+        processEncounters(date, stage -> {
+        });
+    }
+
+    /**
+     * Same as {@link #processEncounters(LocalDate)} reporting every stage to the listener as it starts.
+     */
+    @Transactional
+    public void processEncounters(LocalDate date, Consumer<ProcessingStage> stageListener) {
+        processingCheckpointRepository.findLastProcessedDate()
+                .filter(date::isBefore)
+                .ifPresent(checkpoint -> {
+                    // Ratings build on each other, the dates after this one were rated without it
+                    throw new IllegalArgumentException("Encounters on " + date
+                            + " are older than the last processed date " + checkpoint);
+                });
+        List<Encounter> unprocessedEncounters = lockUnprocessedEncounters(date);
+
+        stageListener.accept(ProcessingStage.RATING);
+        // Lazy decay materializes the demerits of returning players on the in-memory table
+        if (inMemory || inactivityDecay.isLazy()) {
+            processInMemory(date, unprocessedEncounters, RatingTable.load(playerService.getAllPlayers()), LocalDate.now());
+        } else {
+            processPerEncounter(unprocessedEncounters);
+        }
+        finishProcessing(date, unprocessedEncounters, LocalDate.now(), stageListener);
+
+        eventPublisher.publishEvent(new RatingsUpdatedEvent(date));
+    }
+
+    /**
+     * Processes one date of a backfill within the caller's transaction, on ratings kept in memory between dates.
+     * The date itself is used for the absentee rows and the new highest ranks, and the committed ranks are taken
+     * over by the table for the next date. No {@link RatingsUpdatedEvent} is published, the caller does once the
+     * whole range is done. Returns the number of encounters processed.
+     */
+    public int processBackfillDate(LocalDate date, RatingTable ratingTable, Consumer<ProcessingStage> stageListener) {
+        List<Encounter> unprocessedEncounters = lockUnprocessedEncounters(date);
+
+        stageListener.accept(ProcessingStage.RATING);
+        processInMemory(date, unprocessedEncounters, ratingTable, date);
+        ratingTable.applyRanks(finishProcessing(date, unprocessedEncounters, date, stageListener));
+        return unprocessedEncounters.size();
+    }
+
+    private List<LeaderboardIndex.RankChange> finishProcessing(LocalDate date, List<Encounter> unprocessedEncounters,
+                                                               LocalDate processingDate, Consumer<ProcessingStage> stageListener) {
+        log.info("Updating player ranking once process every encounter for the date : {}", date);
+        stageListener.accept(ProcessingStage.RANKING);
+        List<LeaderboardIndex.RankChange> rankChanges = playerService.updatePlayerRanking(processingDate);
+
+        log.info("Updating the new ranks in the history table");
+        stageListener.accept(ProcessingStage.RANK_HISTORY);
+        scoreHistoryService.updateEncounterNewRankings(date);
+
+        // Written with the date, so a backfill interrupted after this commit resumes with the next date
+        processingCheckpointRepository.saveLastProcessedDate(date);
+
+        // Shadow ratings only follow committed dates, and their failures never touch the real processing
+        AfterCommit.run(() -> {
+            stageListener.accept(ProcessingStage.SHADOW_MODELS);
+            rateShadowModels(date, unprocessedEncounters);
+        });
+        return rankChanges;
+    }
+
+    private List<Encounter> getUnprocessedEncounters(LocalDate date) {
+        return filterUnprocessed(date, encounterRepository.findAllByEncounterDate(date));
+    }
+
+    // The rows stay locked until commit, a concurrent run for the same date waits and then finds them processed
+    private List<Encounter> lockUnprocessedEncounters(LocalDate date) {
+        return filterUnprocessed(date, encounterRepository.findAllByEncounterDateForUpdate(date));
+    }
+
+    private List<Encounter> filterUnprocessed(LocalDate date, List<Encounter> encounters) {
+        log.info("Found {} encounters for date {}", encounters.size(), date);
+
+        List<Encounter> unprocessedEncounters = encounters.stream()
+                .filter(e -> !e.isProcessed())
+                .toList();
+
+        if (unprocessedEncounters.isEmpty()) {
+            log.error("Found 0 unprocessed encounters for the date {}", date);
+            throw new RuntimeException("No unprocessed encounters");
+        }
+        return unprocessedEncounters;
+    }
+
+    /**
+     * Runs the full pipeline for the date against an in-memory copy of the ratings and returns how every player
+     * would move, without writing anything. Hypothetical results replace the date's unprocessed encounters when given.
+     */
+    @Transactional(readOnly = true)
+    public SimulationResult simulateEncounters(LocalDate date, List<EncounterResultV2> hypotheticalResults) {
+        List<Encounter> encounters = hypotheticalResults == null || hypotheticalResults.isEmpty()
+                ? getUnprocessedEncounters(date)
+                : toSimulatedEncounters(date, hypotheticalResults);
+
+        RatingTable current = RatingTable.load(playerService.getAllPlayers());
+        RatingTable simulated = current.copy();
+        Set<Integer> presentPlayerIds = applyEncounters(date, encounters, simulated, LocalDate.now());
+        // Ranked on the scores with pending demerits, as processing the date would
+        InactivityDecay.Snapshot decay = inactivityDecay.load().afterGameDay(date, presentPlayerIds);
+        simulated.rankActivePlayers(LocalDate.now(), id -> decay.getEffectiveScore(simulated, id));
+
+        var changes = new ArrayList<PlayerRatingChange>();
+        for (Player player : current.getPlayers()) {
+            int id = player.getId();
+            boolean changed = current.getScore(id) != simulated.getScore(id)
+                    || current.getRank(id) != simulated.getRank(id)
+                    || current.getStatus(id) != simulated.getStatus(id);
+            if (changed) {
+                changes.add(new PlayerRatingChange(id, player.getName(),
+                        current.getScore(id), simulated.getScore(id), simulated.getScore(id) - current.getScore(id),
+                        current.getRank(id), simulated.getRank(id),
+                        current.getStatus(id), simulated.getStatus(id)));
+            }
+        }
+        changes.sort(Comparator.comparing(PlayerRatingChange::newRank));
+        return new SimulationResult(date, encounters.size(), changes);
+    }
+
+    private void processInMemory(LocalDate date, List<Encounter> unprocessedEncounters, RatingTable ratingTable, LocalDate processingDate) {
+        applyEncounters(date, unprocessedEncounters, ratingTable, processingDate);
+        scorePersister.flush(ratingTable);
+    }
+
+    // Returns the ids of the players of the encounters
+    private Set<Integer> applyEncounters(LocalDate date, List<Encounter> encounters, RatingTable ratingTable, LocalDate processingDate) {
+        RankScoreCalculator rankScoreCalculator = rankScoreCalculatorProvider.getRankScoreCalculator();
+        Set<Integer> presentPlayerIds = new HashSet<>();
+
+        for (Encounter encounter : encounters) {
+            for (int playerId : playerUtil.getPlayerIdsByIdsString(encounter.getTeam1())) {
+                presentPlayerIds.add(playerId);
+            }
+            for (int playerId : playerUtil.getPlayerIdsByIdsString(encounter.getTeam2())) {
+                presentPlayerIds.add(playerId);
+            }
+        }
+        if (inactivityDecay.isLazy()) {
+            // Players coming back first take the demerits of the game days they missed
+            InactivityDecay.Snapshot decay = inactivityDecay.load();
+            presentPlayerIds.forEach(playerId -> decay.materialize(ratingTable, playerId, date));
+        }
+        rankScoreCalculator.calculatePeriod(date, encounters, ratingTable);
+
+        List<Player> absentPlayers = ratingTable.getPlayers().stream()
+                .filter(p -> !presentPlayerIds.contains(p.getId()))
+                .toList();
+        log.info("Following players are absentees : {}", absentPlayers);
+        rankScoreCalculator.calculateAbsenteeScore(absentPlayers, ratingTable, processingDate);
+        return presentPlayerIds;
+    }
+
+    private List<Encounter> toSimulatedEncounters(LocalDate date, List<EncounterResultV2> results) {
+        var encounters = new ArrayList<Encounter>();
+        for (EncounterResultV2 result : results) {
+            encounters.add(Encounter.builder()
+                    .id(SIMULATED_ENCOUNTER_ID_BASE - encounters.size())
+                    .encounterDate(date)
+                    .team1(playerUtil.getTeamPlayerIdsStringV2(result.team1()))
+                    .team2(playerUtil.getTeamPlayerIdsStringV2(result.team2()))
+                    .processed(false)
+                    .team1SetPoints(result.team1().setPoints())
+                    .team2SetPoints(result.team2().setPoints())
+                    .build());
+        }
+        return encounters;
+    }
+
+    private void processPerEncounter(List<Encounter> unprocessedEncounters) {
+        // Scores are written entity by entity here, the leaderboard is rebuilt from the database for the ranking
+        leaderboardIndex.invalidate();
+        RankScoreCalculator rankScoreCalculator = rankScoreCalculatorProvider.getRankScoreCalculator();
+        List<Player> absentPlayers = playerService.getAllPlayers();
+
+        for (Encounter unprocessedEncounter : unprocessedEncounters) {
+            rankScoreCalculator.calculateAndPersist(unprocessedEncounter);
+            playerUtil.getPlayersByIdsString(unprocessedEncounter.getTeam1()).forEach(absentPlayers::remove);
+            playerUtil.getPlayersByIdsString(unprocessedEncounter.getTeam2()).forEach(absentPlayers::remove);
+        }
+
+        log.info("Following players are absentees : {}", absentPlayers);
+        rankScoreCalculator.calculateAbsenteeScoreAndPersist(absentPlayers);
+    }
+
+    private void rateShadowModels(LocalDate date, List<Encounter> encounters) {
+        // Each model writes in a transaction of its own, the one of the date is already committed
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (ShadowRatingModel shadowModel : rankScoreCalculatorProvider.getShadowModels()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> shadowModel.ratePeriod(date, encounters));
+            } catch (RuntimeException e) {
+                // A failing shadow model must never block the real processing
+                log.error("Shadow rating model [{}] failed for date {} with error [{}]", shadowModel.getName(), date, e.getMessage(), e);
+            }
+        }
+    }
+}
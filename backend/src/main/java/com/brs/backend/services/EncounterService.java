@@ -1,17 +1,25 @@
 package com.brs.backend.services;
 
+import com.brs.backend.common.PlayerDisplayCache;
+import com.brs.backend.core.HeadToHeadIndex;
+import com.brs.backend.dto.BulkEncounterResult;
+import com.brs.backend.dto.EncounterResult;
+import com.brs.backend.dto.EncounterResultV2;
 import com.brs.backend.dto.PlayerEncounterHistory;
 import com.brs.backend.dto.PlayerEncounterHistoryRecord;
 import com.brs.backend.dto.PlayerHistory;
+import com.brs.backend.dto.Team;
+import com.brs.backend.dto.TeamV2;
 import com.brs.backend.model.Encounter;
-import com.brs.backend.model.Player;
-import com.brs.backend.model.ScoreHistory;
+import com.brs.backend.repositories.EncounterBatchRepository;
+import com.brs.backend.repositories.EncounterParticipantRepository;
 import com.brs.backend.repositories.EncounterRepository;
-import com.brs.backend.repositories.PlayerRepository;
-import com.brs.backend.repositories.ScoreHistoryRepository;
+import com.brs.backend.util.PlayerUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.*;
 
 @Service
@@ -20,55 +28,208 @@ public class EncounterService {
 
     private final EncounterRepository encounterRepository;
 
-    private final ScoreHistoryRepository scoreHistoryRepository;
+    private final PlayerDisplayCache playerDisplayCache;
 
-    private final PlayerRepository playerRepository;
+    private final EncounterParticipantRepository encounterParticipantRepository;
 
-    private static final String ENCOUNTER_SEPARATOR = ":";
-    Map<Integer, Player> playerCache = new HashMap<>();
+    private final EncounterBatchRepository encounterBatchRepository;
+
+    private final PlayerUtil playerUtil;
+
+    private final HeadToHeadIndex headToHeadIndex;
+
+    /**
+     * Saves the encounter together with its participant rows.
+     */
+    @Transactional
+    public Encounter addEncounter(Encounter encounter) {
+        Encounter saved = encounterRepository.save(encounter);
+        var participants = new ArrayList<EncounterParticipantRepository.Participant>();
+        addParticipants(saved, participants);
+        encounterParticipantRepository.insertParticipants(participants);
+        return saved;
+    }
+
+    /**
+     * Resolves every player name of the results with a single lookup and inserts all encounters and their participants
+     * in batches. Nothing is written when any name is unknown, all unknown names are reported at once.
+     */
+    @Transactional
+    public List<Encounter> addEncounters(LocalDate date, List<EncounterResult> results) {
+        Map<String, Integer> playerIds = playerUtil.getPlayerIdsByLowerCaseName();
+        Set<String> unknownNames = new TreeSet<>();
+        for (EncounterResult result : results) {
+            for (Team team : List.of(result.team1(), result.team2())) {
+                for (String name : List.of(team.player1(), team.player2())) {
+                    if (!playerIds.containsKey(name.toLowerCase(Locale.ROOT))) {
+                        unknownNames.add(name);
+                    }
+                }
+            }
+        }
+        if (!unknownNames.isEmpty()) {
+            throw new IllegalArgumentException("Players with names " + unknownNames + " not found");
+        }
+
+        var encounters = new ArrayList<Encounter>(results.size());
+        for (EncounterResult result : results) {
+            encounters.add(Encounter.builder()
+                    .encounterDate(date)
+                    .team1(playerUtil.getTeamPlayerIdsString(result.team1(), playerIds))
+                    .team2(playerUtil.getTeamPlayerIdsString(result.team2(), playerIds))
+                    .processed(false)
+                    .team1SetPoints(result.team1().setPoints())
+                    .team2SetPoints(result.team2().setPoints())
+                    .build());
+        }
+        encounterBatchRepository.insertEncounters(encounters);
+
+        var participants = new ArrayList<EncounterParticipantRepository.Participant>(encounters.size() * 4);
+        for (Encounter encounter : encounters) {
+            addParticipants(encounter, participants);
+        }
+        encounterParticipantRepository.insertParticipants(participants);
+        return encounters;
+    }
+
+    /**
+     * Inserts or updates a whole game day of v2 results in one transaction. All player ids are checked with a single
+     * lookup. A set submitted again for the same teams replaces the earlier set points, unless it is processed.
+     */
+    @Transactional
+    public BulkEncounterResult upsertEncounters(LocalDate date, List<EncounterResultV2> results) {
+        Set<Integer> playerIds = new HashSet<>();
+        for (EncounterResultV2 result : results) {
+            for (TeamV2 team : List.of(result.team1(), result.team2())) {
+                if (team.player1() == null || team.player2() == null) {
+                    throw new IllegalArgumentException("Every team needs two player ids : " + result);
+                }
+                playerIds.add(team.player1());
+                playerIds.add(team.player2());
+            }
+        }
+        Set<Integer> unknownIds = new TreeSet<>(playerIds);
+        unknownIds.removeAll(playerDisplayCache.getPlayers(playerIds).keySet());
+        if (!unknownIds.isEmpty()) {
+            throw new IllegalArgumentException("Players with ids " + unknownIds + " not found");
+        }
+
+        // The same teams submitted twice in one request keep the last set points
+        Map<String, Encounter> submitted = new LinkedHashMap<>();
+        for (EncounterResultV2 result : results) {
+            Encounter encounter = Encounter.builder()
+                    .encounterDate(date)
+                    .team1(playerUtil.getTeamPlayerIdsStringV2(result.team1()))
+                    .team2(playerUtil.getTeamPlayerIdsStringV2(result.team2()))
+                    .processed(false)
+                    .team1SetPoints(result.team1().setPoints())
+                    .team2SetPoints(result.team2().setPoints())
+                    .build();
+            submitted.put(EncounterBatchRepository.getTeamsKey(encounter.getTeam1(), encounter.getTeam2()), encounter);
+        }
+
+        Map<String, Encounter> existing = encounterBatchRepository.findEncountersByTeams(date);
+        int inserted = 0;
+        int updated = 0;
+        int skipped = 0;
+        for (var entry : submitted.entrySet()) {
+            Encounter current = existing.get(entry.getKey());
+            if (current == null) {
+                inserted++;
+            } else if (current.isProcessed()) {
+                skipped++;
+            } else {
+                updated++;
+            }
+        }
+        encounterBatchRepository.upsertEncounters(new ArrayList<>(submitted.values()));
+
+        Map<String, Encounter> stored = encounterBatchRepository.findEncountersByTeams(date);
+        var encounterIds = new ArrayList<Integer>(submitted.size());
+        var participants = new ArrayList<EncounterParticipantRepository.Participant>(submitted.size() * 4);
+        for (String key : submitted.keySet()) {
+            Encounter encounter = stored.get(key);
+            encounterIds.add(encounter.getId());
+            addParticipants(encounter, participants);
+        }
+        encounterParticipantRepository.insertMissingParticipants(participants);
+        return new BulkEncounterResult(date, inserted, updated, skipped, encounterIds);
+    }
+
+    /**
+     * Adds one participant row per distinct player of the encounter. A singles team such as "5:5" names the same
+     * player twice, the first occurrence wins.
+     */
+    private void addParticipants(Encounter encounter, List<EncounterParticipantRepository.Participant> participants) {
+        Set<Integer> added = new HashSet<>();
+        for (int playerId : playerUtil.getPlayerIdsByIdsString(encounter.getTeam1())) {
+            if (added.add(playerId)) {
+                participants.add(new EncounterParticipantRepository.Participant(encounter.getId(), playerId, 1, encounter.getEncounterDate()));
+            }
+        }
+        for (int playerId : playerUtil.getPlayerIdsByIdsString(encounter.getTeam2())) {
+            if (added.add(playerId)) {
+                participants.add(new EncounterParticipantRepository.Participant(encounter.getId(), playerId, 2, encounter.getEncounterDate()));
+            }
+        }
+    }
 
     public PlayerEncounterHistory getPlayerEncounterHistory(int playerId) {
         PlayerHistory currentPlayer = getPlayerInfo(playerId);
         if (currentPlayer == null) {
             return null;
         }
-        var encountersIds = scoreHistoryRepository.findAllByPlayerId(playerId)
-                .stream()
-                .map(ScoreHistory::getEncounterId)
-                .toList();
-        var encounters = encounterRepository.findAllByIdIn(encountersIds)
-                .stream()
-                .sorted(Comparator.comparing(Encounter::getEncounterDate)
-                        .thenComparing(Encounter::getId).reversed()).toList();
+        var playerEncounterHistoryRecords = toHistoryRecords(
+                encounterParticipantRepository.findProcessedEncounterRowsByPlayerId(playerId));
+
+        return new PlayerEncounterHistory(currentPlayer.getPlayerName(),
+                currentPlayer.getPlayerId(), playerEncounterHistoryRecords);
+    }
+
+    /**
+     * Encounters of {@code teamAp1} seen from their side, optionally restricted to a partner and up to two opponents.
+     * The matching encounters are found in the head to head index and only those are read.
+     */
+    public List<PlayerEncounterHistoryRecord> getPlayerEncounterHistory(Integer teamAp1, Integer teamAp2, Integer teamBp1, Integer teamBp2) {
+        if (teamAp1 == null || teamAp1 == 0) {
+            return Collections.emptyList();
+        }
+        int[] team = teamAp2 != null && teamAp2 > 0 ? new int[]{teamAp1, teamAp2} : new int[]{teamAp1};
+        int[] opponents = Arrays.stream(new Integer[]{teamBp1, teamBp2})
+                .filter(p -> p != null && p > 0)
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int[] encounterIds = headToHeadIndex.findEncounters(team, opponents);
+        return toHistoryRecords(encounterParticipantRepository.findProcessedEncounterRowsByPlayerId(teamAp1, encounterIds));
+    }
+
+    private List<PlayerEncounterHistoryRecord> toHistoryRecords(List<EncounterParticipantRepository.ParticipantEncounterRow> rows) {
         var playerEncounterHistoryRecords = new ArrayList<PlayerEncounterHistoryRecord>();
-        for (Encounter encounter : encounters) {
-            List<PlayerHistory> playerTeam;
-            List<PlayerHistory> opponentTeam;
-            int playerTeamPoints;
-            int opponentTeamPoints;
-            if (getPlayerTeam(encounter, playerId) == 1) {
-                playerTeam = Arrays.stream(encounter.getTeam1().split(ENCOUNTER_SEPARATOR))
-                        .map(Integer::valueOf).map(this::getPlayerInfo).toList();
-                opponentTeam = Arrays.stream(encounter.getTeam2().split(ENCOUNTER_SEPARATOR))
-                        .map(Integer::valueOf).map(this::getPlayerInfo).toList();
-                playerTeamPoints = encounter.getTeam1SetPoints();
-                opponentTeamPoints = encounter.getTeam2SetPoints();
-            } else {
-                playerTeam = Arrays.stream(encounter.getTeam2().split(ENCOUNTER_SEPARATOR))
-                        .map(Integer::valueOf).map(this::getPlayerInfo).toList();
-                opponentTeam = Arrays.stream(encounter.getTeam1().split(ENCOUNTER_SEPARATOR))
-                        .map(Integer::valueOf).map(this::getPlayerInfo).toList();
-                playerTeamPoints = encounter.getTeam2SetPoints();
-                opponentTeamPoints = encounter.getTeam1SetPoints();
+        int from = 0;
+        while (from < rows.size()) {
+            var encounter = rows.get(from);
+            var playerTeam = new ArrayList<PlayerHistory>();
+            var opponentTeam = new ArrayList<PlayerHistory>();
+            int to = from;
+            // Rows of one encounter are adjacent, one per participant
+            while (to < rows.size() && rows.get(to).encounterId() == encounter.encounterId()) {
+                var row = rows.get(to++);
+                (row.participantTeamNo() == encounter.playerTeamNo() ? playerTeam : opponentTeam)
+                        .add(getPlayerInfo(row.participantId()));
             }
-            var calculatedScore = encounter.getCalculatedScore();
+            from = to;
+
+            int playerTeamPoints = encounter.playerTeamNo() == 1 ? encounter.team1SetPoints() : encounter.team2SetPoints();
+            int opponentTeamPoints = encounter.playerTeamNo() == 1 ? encounter.team2SetPoints() : encounter.team1SetPoints();
+            var calculatedScore = encounter.calculatedScore();
             if (playerTeamPoints < opponentTeamPoints) {
                 calculatedScore *= -1;
             }
             playerEncounterHistoryRecords.add(
                     new PlayerEncounterHistoryRecord(
-                            encounter.getEncounterDate(),
-                            encounter.getId(),
+                            encounter.encounterDate(),
+                            encounter.encounterId(),
                             calculatedScore,
                             opponentTeam,
                             opponentTeamPoints,
@@ -76,51 +237,12 @@ public class EncounterService {
                             playerTeamPoints
                     ));
         }
-
-        return new PlayerEncounterHistory(currentPlayer.getPlayerName(),
-                currentPlayer.getPlayerId(), playerEncounterHistoryRecords);
-    }
-
-    public List<PlayerEncounterHistoryRecord> getPlayerEncounterHistory(Integer teamAp1, Integer teamAp2, Integer teamBp1, Integer teamBp2) {
-        if (teamAp1 == null || teamAp1 == 0) {
-            return Collections.emptyList();
-        }
-        List<PlayerEncounterHistoryRecord> encounterHistory = getPlayerEncounterHistory(teamAp1).getEncounterHistory();
-
-        if (teamAp2 != null && teamAp2 > 0){
-            encounterHistory = encounterHistory.stream()
-                    .filter(e -> e.playerTeam().stream().anyMatch(w -> w.getPlayerId().equals(teamAp2)))
-                    .toList();
-        }
-
-        if (teamBp1 != null && teamBp1 > 0) {
-            encounterHistory = encounterHistory.stream()
-                    .filter(e -> e.opponentTeam().stream().anyMatch((w -> w.getPlayerId().equals(teamBp1))))
-                    .toList();
-        }
-
-        if (teamBp2 != null && teamBp2 > 0) {
-            encounterHistory = encounterHistory.stream()
-                    .filter(e -> e.opponentTeam().stream().anyMatch((w -> w.getPlayerId().equals(teamBp2))))
-                    .toList();
-        }
-
-        return encounterHistory;
+        return playerEncounterHistoryRecords;
     }
 
     private PlayerHistory getPlayerInfo(Integer playerId) {
-        var player = playerCache.computeIfAbsent(playerId, id -> playerRepository.findById(id).orElse(null));
-        if (player == null) {
-            return null;
-        }
-        return new PlayerHistory(player.getName(), playerId);
-    }
-
-    private int getPlayerTeam(Encounter encounter, Integer playerId) {
-        if (Arrays.stream(encounter.getTeam1().split(ENCOUNTER_SEPARATOR))
-                .anyMatch(p -> Integer.valueOf(p).equals(playerId))) {
-            return 1;
-        } else
-            return 2;
+        return playerDisplayCache.getPlayer(playerId)
+                .map(player -> new PlayerHistory(player.name(), playerId))
+                .orElse(null);
     }
 }
@@ -0,0 +1,132 @@
+package com.brs.backend.services;
+
+import com.brs.backend.dto.ExportDataset;
+import com.brs.backend.dto.ExportFormat;
+import com.brs.backend.repositories.ExportRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Writes a dataset straight from the database cursor to the response, one row at a time, as newline delimited JSON
+ * or CSV. Column names of the table are used as field names and header.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+
+    private final ExportRepository exportRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public void export(ExportDataset dataset, ExportFormat format, Integer sinceId, LocalDate sinceDate, OutputStream out) {
+        long startedAt = System.currentTimeMillis();
+        long[] rows = {0};
+        try {
+            if (format == ExportFormat.CSV) {
+                Writer writer = new OutputStreamWriter(new BufferedOutputStream(out), StandardCharsets.UTF_8);
+                // The header comes from the columns, so an export without rows still has one
+                exportRepository.stream(dataset, sinceId, sinceDate, metaData -> writeCsvHeader(writer, metaData), rs -> {
+                    writeCsvRow(writer, rs);
+                    rows[0]++;
+                });
+                writer.flush();
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out), JsonEncoding.UTF8);
+                // Every row is a root level value, separated by a new line
+                generator.setRootValueSeparator(null);
+                exportRepository.stream(dataset, sinceId, sinceDate, rs -> {
+                    writeJsonRow(generator, rs);
+                    rows[0]++;
+                });
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Exported {} {} rows as {} in {} ms", rows[0], dataset, format, System.currentTimeMillis() - startedAt);
+    }
+
+    private void writeJsonRow(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            ResultSetMetaData metaData = rs.getMetaData();
+            generator.writeStartObject();
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                generator.writeFieldName(metaData.getColumnLabel(column));
+                Object value = columnValue(rs, column);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.toString());
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvHeader(Writer writer, ResultSetMetaData metaData) throws SQLException {
+        try {
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                writer.write(column == 1 ? "" : ",");
+                writer.write(metaData.getColumnLabel(column));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(Writer writer, ResultSet rs) throws SQLException {
+        try {
+            int columnCount = rs.getMetaData().getColumnCount();
+            for (int column = 1; column <= columnCount; column++) {
+                writer.write(column == 1 ? "" : ",");
+                Object value = columnValue(rs, column);
+                if (value != null) {
+                    writer.write(escapeCsv(value.toString()));
+                }
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object columnValue(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return value;
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,5 +1,6 @@
 package com.brs.backend.services;
 
+import com.brs.backend.core.InactivityDecay;
 import com.brs.backend.dto.GamePlayer;
 import com.brs.backend.model.Player;
 import com.brs.backend.repositories.PlayerRepository;
@@ -18,10 +19,12 @@ public class GameService {
 
     private final PlayerUtil playerUtil;
 
+    private final InactivityDecay inactivityDecay;
+
     public List<GamePlayer> getAvailablePlayersForGame() {
         var players = playerUtil.getRankedPlayers(playerRepository.findAll()
                 .stream()
-                .filter(Player::isAvailableForGame).toList());
+                .filter(Player::isAvailableForGame).toList(), inactivityDecay.load()::getEffectiveScore);
         int rankForTheGame = 0;
         var rankList = new ArrayList<GamePlayer>();
         for (var player : players) {
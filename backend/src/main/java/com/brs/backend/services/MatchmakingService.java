@@ -0,0 +1,340 @@
+package com.brs.backend.services;
+
+import com.brs.backend.core.EloRankScoreCalculator;
+import com.brs.backend.core.InactivityDecay;
+import com.brs.backend.dto.CourtAssignment;
+import com.brs.backend.dto.MatchmakingResult;
+import com.brs.backend.dto.request.MatchmakingRequest;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.PlayerRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the players of a game day into balanced doubles games.
+ * <p>
+ * Every court holds four players and the cost of a court is the squared gap between the average rank scores of its
+ * two teams, using the best of the three possible splits of its four players. The search is a randomized local search
+ * over which players share a court : swap two players of different courts (or a court and the bench), keep the swap
+ * when it does not make the total cost worse, and restart from a fresh shuffle when no improvement came for a while.
+ * Swaps within a court or within the bench are never tried, the cost of a court already takes its best split and the
+ * bench has no cost. One independent search runs per worker thread until the time budget is spent, and the best
+ * assignment wins.
+ * <p>
+ * When there are more players than court places the search also picks who sits out. A single court is not searched,
+ * every line-up of four is tried instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchmakingService {
+
+    private static final int PLAYERS_PER_COURT = 4;
+
+    // Pairs of positions within a court forming team 1, the other two positions are team 2
+    private static final int[][] SPLITS = {{0, 1, 2, 3}, {0, 2, 1, 3}, {0, 3, 1, 2}};
+
+    private final PlayerRepository playerRepository;
+
+    private final InactivityDecay inactivityDecay;
+
+    @Value("${matchmaking.time-budget-millis:300}")
+    private long defaultTimeBudgetMillis;
+
+    // Upper bound of the time budget a request may ask for
+    @Value("${matchmaking.max-time-budget-millis:5000}")
+    private long maxTimeBudgetMillis;
+
+    // Number of parallel searches, every available core when 0
+    @Value("${matchmaking.workers:0}")
+    private int workers;
+
+    private ExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        executorService = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("matchmaking-", 1).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    public MatchmakingResult findMatches(MatchmakingRequest request) {
+        long startedAt = System.currentTimeMillis();
+        List<Player> players = getPlayers(request.getPlayerIds());
+        int courts = Math.min(request.getCourts(), players.size() / PLAYERS_PER_COURT);
+        if (courts <= 0) {
+            throw new IllegalArgumentException("At least one court and " + PLAYERS_PER_COURT + " players are needed");
+        }
+
+        InactivityDecay.Snapshot decay = inactivityDecay.load();
+        double[] scores = players.stream().mapToDouble(decay::getEffectiveScore).toArray();
+        long timeBudgetMillis = getTimeBudgetMillis(request);
+
+        Search best;
+        long evaluatedMoves;
+        if (courts == 1) {
+            best = new Search(scores, courts, null).runSingleCourt();
+            evaluatedMoves = best.moves;
+        } else {
+            long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000;
+            List<Future<Search>> futures = new ArrayList<>(workers);
+            long seed = System.nanoTime();
+            for (int worker = 0; worker < workers; worker++) {
+                Search search = new Search(scores, courts, new SplittableRandom(seed + worker * 0x9E3779B97F4A7C15L));
+                futures.add(executorService.submit(() -> search.run(deadline)));
+            }
+
+            best = null;
+            evaluatedMoves = 0;
+            for (Future<Search> future : futures) {
+                Search search = await(future);
+                evaluatedMoves += search.moves;
+                if (best == null || search.bestCost < best.bestCost) {
+                    best = search;
+                }
+            }
+        }
+        MatchmakingResult result = toResult(players, scores, courts, best, evaluatedMoves, System.currentTimeMillis() - startedAt);
+        log.info("Matched {} players on {} courts with total gap {} after {} moves", players.size(), courts,
+                result.totalScoreGap(), evaluatedMoves);
+        return result;
+    }
+
+    private long getTimeBudgetMillis(MatchmakingRequest request) {
+        if (request.getTimeBudgetMillis() == null) {
+            return Math.min(defaultTimeBudgetMillis, maxTimeBudgetMillis);
+        }
+        if (request.getTimeBudgetMillis() <= 0) {
+            throw new IllegalArgumentException("Time budget should be positive, was " + request.getTimeBudgetMillis());
+        }
+        return Math.min(request.getTimeBudgetMillis(), maxTimeBudgetMillis);
+    }
+
+    private List<Player> getPlayers(List<Integer> playerIds) {
+        if (playerIds == null || playerIds.isEmpty()) {
+            return playerRepository.findAll().stream().filter(Player::isAvailableForGame).toList();
+        }
+        List<Player> players = playerRepository.findAllById(playerIds);
+        if (players.size() != playerIds.stream().distinct().count()) {
+            throw new IllegalArgumentException("Unknown player ids in " + playerIds);
+        }
+        return players;
+    }
+
+    private static Search await(Future<Search> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Matchmaking interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Matchmaking failed", e.getCause());
+        }
+    }
+
+    private static MatchmakingResult toResult(List<Player> players, double[] scores, int courts, Search best,
+                                              long evaluatedMoves, long durationMillis) {
+        List<CourtAssignment> assignments = new ArrayList<>(courts);
+        double totalGap = 0;
+        for (int court = 0; court < courts; court++) {
+            int base = court * PLAYERS_PER_COURT;
+            int[] split = SPLITS[bestSplit(scores, best.bestOrder, base)];
+            int[] team1 = {best.bestOrder[base + split[0]], best.bestOrder[base + split[1]]};
+            int[] team2 = {best.bestOrder[base + split[2]], best.bestOrder[base + split[3]]};
+            double team1Average = (scores[team1[0]] + scores[team1[1]]) / 2;
+            double team2Average = (scores[team2[0]] + scores[team2[1]]) / 2;
+            totalGap += Math.abs(team1Average - team2Average);
+            assignments.add(new CourtAssignment(court + 1,
+                    new int[]{players.get(team1[0]).getId(), players.get(team1[1]).getId()},
+                    new int[]{players.get(team2[0]).getId(), players.get(team2[1]).getId()},
+                    team1Average, team2Average, EloRankScoreCalculator.expectedScore(team1Average, team2Average)));
+        }
+        List<Integer> benched = new ArrayList<>();
+        for (int position = courts * PLAYERS_PER_COURT; position < best.bestOrder.length; position++) {
+            benched.add(players.get(best.bestOrder[position]).getId());
+        }
+        return new MatchmakingResult(assignments, benched, totalGap, evaluatedMoves, durationMillis);
+    }
+
+    private static int bestSplit(double[] scores, int[] order, int base) {
+        int bestSplit = 0;
+        double bestGap = Double.MAX_VALUE;
+        for (int s = 0; s < SPLITS.length; s++) {
+            double gap = splitGap(scores, order, base, SPLITS[s]);
+            if (gap < bestGap) {
+                bestGap = gap;
+                bestSplit = s;
+            }
+        }
+        return bestSplit;
+    }
+
+    private static double splitGap(double[] scores, int[] order, int base, int[] split) {
+        return Math.abs(scores[order[base + split[0]]] + scores[order[base + split[1]]]
+                - scores[order[base + split[2]]] - scores[order[base + split[3]]]) / 2;
+    }
+
+    private static double courtCost(double[] scores, int[] order, int base) {
+        double gap = splitGap(scores, order, base, SPLITS[bestSplit(scores, order, base)]);
+        return gap * gap;
+    }
+
+    /**
+     * One hill climbing search with restarts. Positions [4k, 4k + 4) of the order array are court k, the rest is
+     * the bench.
+     */
+    private static final class Search {
+
+        private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+        private final double[] scores;
+        private final int courts;
+        private final SplittableRandom random;
+        private final int[] order;
+        private final double[] courtCosts;
+        private final int staleLimit;
+
+        private int[] bestOrder;
+        private double bestCost = Double.MAX_VALUE;
+        private long moves;
+
+        private Search(double[] scores, int courts, SplittableRandom random) {
+            this.scores = scores;
+            this.courts = courts;
+            this.random = random;
+            this.order = new int[scores.length];
+            this.courtCosts = new double[courts];
+            this.staleLimit = 200 * scores.length;
+        }
+
+        private Search run(long deadline) {
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            double cost = restart();
+            int stale = 0;
+            while (bestCost > 0) {
+                if (++moves % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    break;
+                }
+                int first = random.nextInt(courts * PLAYERS_PER_COURT);
+                int firstCourt = first / PLAYERS_PER_COURT;
+                // Any position outside the first court, another court or the bench
+                int second = random.nextInt(order.length - PLAYERS_PER_COURT);
+                if (second >= firstCourt * PLAYERS_PER_COURT) {
+                    second += PLAYERS_PER_COURT;
+                }
+                int secondCourt = second / PLAYERS_PER_COURT;
+
+                swap(first, second);
+                double firstCost = courtCost(scores, order, firstCourt * PLAYERS_PER_COURT);
+                double secondCost = secondCourt < courts ? courtCost(scores, order, secondCourt * PLAYERS_PER_COURT) : 0;
+                double delta = firstCost - courtCosts[firstCourt]
+                        + (secondCourt < courts ? secondCost - courtCosts[secondCourt] : 0);
+                if (delta > 0) {
+                    swap(first, second);
+                    if (++stale >= staleLimit) {
+                        cost = restart();
+                        stale = 0;
+                    }
+                    continue;
+                }
+
+                courtCosts[firstCourt] = firstCost;
+                if (secondCourt < courts) {
+                    courtCosts[secondCourt] = secondCost;
+                }
+                cost += delta;
+                stale = delta < 0 ? 0 : stale + 1;
+                if (cost < bestCost) {
+                    keepBest(cost);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Tries every line-up of four players for a single court, a search has nothing to gain there. Positions
+         * [0, 4) of the best order are the court, the rest is the bench.
+         */
+        private Search runSingleCourt() {
+            int n = scores.length;
+            int[] lineUp = new int[PLAYERS_PER_COURT];
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    for (int c = b + 1; c < n; c++) {
+                        for (int d = c + 1; d < n; d++) {
+                            moves++;
+                            lineUp[0] = a;
+                            lineUp[1] = b;
+                            lineUp[2] = c;
+                            lineUp[3] = d;
+                            double cost = courtCost(scores, lineUp, 0);
+                            if (cost < bestCost) {
+                                bestCost = cost;
+                                bestOrder = withBench(lineUp);
+                            }
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        private int[] withBench(int[] lineUp) {
+            int[] withBench = new int[scores.length];
+            System.arraycopy(lineUp, 0, withBench, 0, PLAYERS_PER_COURT);
+            int position = PLAYERS_PER_COURT;
+            for (int player = 0; player < scores.length; player++) {
+                if (player != lineUp[0] && player != lineUp[1] && player != lineUp[2] && player != lineUp[3]) {
+                    withBench[position++] = player;
+                }
+            }
+            return withBench;
+        }
+
+        private double restart() {
+            for (int i = order.length - 1; i > 0; i--) {
+                swap(i, random.nextInt(i + 1));
+            }
+            double cost = 0;
+            for (int court = 0; court < courts; court++) {
+                courtCosts[court] = courtCost(scores, order, court * PLAYERS_PER_COURT);
+                cost += courtCosts[court];
+            }
+            if (cost < bestCost) {
+                keepBest(cost);
+            }
+            return cost;
+        }
+
+        private void keepBest(double cost) {
+            bestCost = cost;
+            bestOrder = order.clone();
+        }
+
+        private void swap(int i, int j) {
+            int player = order[i];
+            order[i] = order[j];
+            order[j] = player;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.brs.backend.services;
+
+import com.brs.backend.core.InactivityDecay;
+import com.brs.backend.core.RatingsUpdatedEvent;
+import com.brs.backend.dto.PlayerInfo;
+import com.brs.backend.dto.PlayerStatus;
+import com.brs.backend.dto.SecurePlayerInfo;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.PlayerRepository;
+import com.brs.backend.repositories.ScoreHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Materialized player listing served by {@code /players} and {@code /v2/auth/players}.
+ * <p>
+ * The rows are built with one read of the players and one read of every player's latest history row, and kept in
+ * memory until the next {@link RatingsUpdatedEvent} commits. Only the time spent at the highest rank depends on the
+ * current day, so it is derived when the rows are read. Rows loaded while an update committed are served to their
+ * reader only, they are not kept.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PlayerInfoReadModel {
+
+    private final PlayerRepository playerRepository;
+
+    private final ScoreHistoryRepository scoreHistoryRepository;
+
+    private final InactivityDecay inactivityDecay;
+
+    private volatile List<Row> rows;
+
+    // Counts the committed rating updates, loaded rows are only kept when none committed while they were read
+    private final AtomicLong generation = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingsUpdated(RatingsUpdatedEvent event) {
+        invalidate();
+        getRows();
+    }
+
+    private synchronized void invalidate() {
+        generation.incrementAndGet();
+        rows = null;
+    }
+
+    public List<PlayerInfo> getPlayerInfo(Optional<String> status) {
+        LocalDate today = LocalDate.now();
+        return getRows().stream()
+                .filter(r -> matches(r, status))
+                .map(r -> new PlayerInfo(r.id(), r.name(), r.activeRankScore(), r.activeRank(), r.previousRank(),
+                        r.colorHex(), r.highestRank(), timeInHighestRank(r, today), r.status()))
+                .toList();
+    }
+
+    public List<SecurePlayerInfo> getSecurePlayerInfo(Optional<String> status) {
+        LocalDate today = LocalDate.now();
+        return getRows().stream()
+                .filter(r -> matches(r, status))
+                .map(r -> new SecurePlayerInfo(r.id(), r.name(), r.activeRankScore(), r.activeRank(), r.previousRank(),
+                        r.colorHex(), r.highestRank(), timeInHighestRank(r, today), r.status(), r.email()))
+                .toList();
+    }
+
+    private List<Row> getRows() {
+        List<Row> current = rows;
+        if (current == null) {
+            long loadGeneration = generation.get();
+            current = load();
+            publish(loadGeneration, current);
+        }
+        return current;
+    }
+
+    private synchronized void publish(long loadGeneration, List<Row> loaded) {
+        if (generation.get() == loadGeneration) {
+            rows = loaded;
+        }
+    }
+
+    private List<Row> load() {
+        Map<Integer, Integer> previousRanks = new HashMap<>();
+        scoreHistoryRepository.findLatestPlayerOldRanks()
+                .forEach(r -> previousRanks.put(r.getPlayerId(), r.getPlayerOldRank()));
+        InactivityDecay.Snapshot decay = inactivityDecay.load();
+        List<Row> loaded = playerRepository.findAll().stream()
+                .map(p -> new Row(p.getId(), p.getName(), decay.getEffectiveScore(p), p.getPlayerRank(),
+                        previousRanks.getOrDefault(p.getId(), p.getPlayerRank()), p.getColorHex(), p.getHighestRank(),
+                        p.getRankSince(), getPlayerStatus(p), p.getEmail()))
+                .toList();
+        log.info("Loaded the player info of {} players", loaded.size());
+        return loaded;
+    }
+
+    private static boolean matches(Row row, Optional<String> status) {
+        if (status.isEmpty() || status.get().isEmpty() || status.get().equalsIgnoreCase("ALL")) {
+            return true;
+        } else if (status.get().equalsIgnoreCase("INACTIVE")) {
+            return row.status() == PlayerStatus.DISABLED;
+        } else if (status.get().equalsIgnoreCase("ACTIVE")) {
+            return row.status() == PlayerStatus.ACTIVE;
+        } else if (status.get().equalsIgnoreCase("ENABLED")) {
+            return row.status() != PlayerStatus.DISABLED;
+        } else {
+            return true;
+        }
+    }
+
+    private static String timeInHighestRank(Row row, LocalDate today) {
+        if (row.rankSince() == null) {
+            return null;
+        }
+        int diff = Math.abs(Period.between(today, row.rankSince()).getDays());
+        return diff + " day(s)";
+    }
+
+    private static PlayerStatus getPlayerStatus(Player player) {
+        if (player.isActive()) {
+            return PlayerStatus.ACTIVE;
+        } else if (player.isAvailableForGame()) {
+            return PlayerStatus.ENABLED;
+        }
+        return PlayerStatus.DISABLED;
+    }
+
+    private record Row(Integer id, String name, Double rankScore, Integer rank, Integer previousRank, String colorHex,
+                       Integer highestRank, LocalDate rankSince, PlayerStatus status, String email) {
+
+        private Double activeRankScore() {
+            return status == PlayerStatus.ACTIVE ? rankScore : null;
+        }
+
+        private Integer activeRank() {
+            return status == PlayerStatus.ACTIVE ? rank : null;
+        }
+    }
+}
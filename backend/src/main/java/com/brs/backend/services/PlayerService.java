@@ -1,25 +1,30 @@
 package com.brs.backend.services;
 
+import com.brs.backend.common.PlayerDisplayCache;
 import com.brs.backend.configuration.ApiKeyAuth;
+import com.brs.backend.core.InactivityDecay;
+import com.brs.backend.core.LeaderboardIndex;
+import com.brs.backend.core.RatingTable;
+import com.brs.backend.core.RatingsUpdatedEvent;
 import com.brs.backend.core.ScorePersister;
 import com.brs.backend.dto.*;
 import com.brs.backend.dto.request.NewPlayer;
 import com.brs.backend.dto.request.UpdatePlayer;
 import com.brs.backend.model.Player;
-import com.brs.backend.model.ScoreHistory;
 import com.brs.backend.repositories.PlayerRepository;
-import com.brs.backend.repositories.ScoreHistoryRepository;
+import com.brs.backend.repositories.ScoreBatchRepository;
 import com.brs.backend.util.PlayerUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.Period;
 import java.util.*;
 
 @Component
@@ -28,32 +33,107 @@ public class PlayerService {
     @Autowired
     private PlayerRepository playerRepository;
 
-    @Autowired
-    private ScoreHistoryRepository scoreHistoryRepository;
-
     @Autowired
     private ScorePersister scorePersister;
 
     @Autowired
     private PlayerUtil playerUtil;
 
-    public List<Player> updatePlayerRanking() {
-        List<Player> playerList = playerUtil.getRankedPlayers(playerRepository.findAll()
-                .stream()
-                .filter(Player::isActive).toList());
-
-        List<Player> playerListSaved = new ArrayList<>();
-        int rank = 0;
-        for (Player player : playerList) {
-            player.setPlayerRank(++rank);
-            if (player.getPlayerRank() < player.getHighestRank()) {
-                player.setHighestRank(player.getPlayerRank());
-                player.setRankSince(LocalDate.now());
-            }
-            playerListSaved.add(playerRepository.save(player));
+    @Autowired
+    private ScoreBatchRepository scoreBatchRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+
+    @Autowired
+    private PlayerDisplayCache playerDisplayCache;
+
+    @Autowired
+    private InactivityDecay inactivityDecay;
+
+    @Autowired
+    private PlayerInfoReadModel playerInfoReadModel;
+
+    /**
+     * Re-ranks the active players from the leaderboard index and writes only the players whose rank or highest rank
+     * changed. The index has to be fed with every score or status change made since the last ranking.
+     */
+    @Transactional
+    public List<LeaderboardIndex.RankChange> updatePlayerRanking() {
+        return updatePlayerRanking(LocalDate.now());
+    }
+
+    /**
+     * Same as {@link #updatePlayerRanking()} with the given date as the rank since date of new highest ranks.
+     */
+    public List<LeaderboardIndex.RankChange> updatePlayerRanking(LocalDate rankDate) {
+        if (inactivityDecay.isLazy()) {
+            // Every idle player's effective score moved with the new game day, not only the ones fed to the index
+            loadLeaderboard();
+        } else {
+            ensureLeaderboardLoaded();
         }
+        var rankChanges = leaderboardIndex.commitRanks(rankDate);
+        scoreBatchRepository.updateRanks(rankChanges);
+        log.info("Ranking updated, {} player(s) changed rank", rankChanges.size());
+        return rankChanges;
+    }
 
-        return playerListSaved;
+    /**
+     * Rebuilds the leaderboard index from the stored players before re-ranking, for changes made outside of the
+     * processing pipeline.
+     */
+    @Transactional
+    public List<LeaderboardEntry> resyncPlayerRanking() {
+        loadLeaderboard();
+        updatePlayerRanking();
+        eventPublisher.publishEvent(new RatingsUpdatedEvent(LocalDate.now()));
+        return leaderboardIndex.getTop(Integer.MAX_VALUE);
+    }
+
+    public List<LeaderboardEntry> getLeaderboard(int limit) {
+        ensureLeaderboardLoaded();
+        return leaderboardIndex.getTop(limit);
+    }
+
+    public Optional<LeaderboardEntry> getLeaderboardEntry(int playerId) {
+        ensureLeaderboardLoaded();
+        return Optional.ofNullable(leaderboardIndex.getEntry(playerId));
+    }
+
+    private void ensureLeaderboardLoaded() {
+        if (!leaderboardIndex.isLoaded()) {
+            loadLeaderboard();
+        }
+    }
+
+    // Ranks on the effective scores, which are the stored ones unless the lazy decay mode is on
+    private void loadLeaderboard() {
+        leaderboardIndex.load(playerRepository.findAll(), inactivityDecay.load()::getEffectiveScore);
+    }
+
+    /**
+     * Writes the demerits left pending by an earlier run in lazy decay mode, once the mode is back to eager, so the
+     * switch does not silently drop them. Eager processing leaves nothing pending, so this only charges after a switch.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void materializeLeftoverDecay() {
+        if (inactivityDecay.isLazy()) {
+            return;
+        }
+        RatingTable ratingTable = RatingTable.load(getAllPlayers());
+        int charged = inactivityDecay.loadLeftover().materializeAll(ratingTable);
+        if (charged == 0) {
+            return;
+        }
+        log.info("Writing the demerits left pending by the lazy inactivity decay for {} player(s)", charged);
+        scorePersister.flush(ratingTable);
+        updatePlayerRanking();
+        eventPublisher.publishEvent(new RatingsUpdatedEvent(LocalDate.now()));
     }
 
     public List<Player> getAllPlayers() {
@@ -65,32 +145,11 @@ public class PlayerService {
     }
 
     public List<PlayerInfo> getPlayerInfoByStatus(Optional<String> status) {
-        var eligiblePlayers = getPlayerListByStatus(status);
-        return eligiblePlayers.stream()
-                .map(e -> {
-                    Optional<ScoreHistory> h = scoreHistoryRepository.findFirstByPlayerIdOrderByEncounterDateDesc(e.getId());
-                    Period period = Period.between(LocalDate.now(), e.getRankSince());
-                    int diff = Math.abs(period.getDays());
-                    return new PlayerInfo(e.getId(), e.getName(), e.isActive() ? e.getRankScore() : null, e.isActive() ? e.getPlayerRank() : null,
-                            h.orElseGet(() -> getMaxRank(e)).getPlayerOldRank(), e.getColorHex(),
-                            e.getHighestRank(), diff + " day(s)", getPlayerStatus(e));
-                })
-                .toList();
+        return playerInfoReadModel.getPlayerInfo(status);
     }
 
     public List<SecurePlayerInfo> getSecurePlayerInfoByStatus(Optional<String> status) {
-        var eligiblePlayers = getPlayerListByStatus(status);
-        var players = eligiblePlayers.stream()
-                .map(e -> {
-                    Optional<ScoreHistory> h = scoreHistoryRepository.findFirstByPlayerIdOrderByEncounterDateDesc(e.getId());
-                    Period period = Period.between(LocalDate.now(), e.getRankSince());
-                    int diff = Math.abs(period.getDays());
-                    return new SecurePlayerInfo(e.getId(), e.getName(), e.isActive() ? e.getRankScore() : null, e.isActive() ? e.getPlayerRank() : null,
-                            h.orElseGet(() -> getMaxRank(e)).getPlayerOldRank(), e.getColorHex(),
-                            e.getHighestRank(), diff + " day(s)", getPlayerStatus(e), e.getEmail());
-                })
-                .toList();
-        return players;
+        return playerInfoReadModel.getSecurePlayerInfo(status);
     }
 
 
@@ -101,6 +160,7 @@ public class PlayerService {
             return;
         }
         scorePersister.activatePlayer(player, activateScore);
+        eventPublisher.publishEvent(new RatingsUpdatedEvent(LocalDate.now()));
     }
 
     public PlayerInfo addPlayer(NewPlayer newPlayer) {
@@ -116,6 +176,7 @@ public class PlayerService {
         player.setColorHex(generateRandomColorHex());
         player.setEmail(newPlayer.getEmail() != null ? newPlayer.getEmail().toLowerCase() : null);
         player = playerRepository.save(player);
+        eventPublisher.publishEvent(new RatingsUpdatedEvent(LocalDate.now()));
         return convert(player);
 
     }
@@ -137,6 +198,8 @@ public class PlayerService {
         }
         if (updated) {
             player = playerRepository.save(player);
+            playerDisplayCache.invalidate(player.getId());
+            eventPublisher.publishEvent(new RatingsUpdatedEvent(LocalDate.now()));
         }
         return new PlayerInfo(player.getId(), player.getName(), player.getRankScore(), player.getPlayerRank(),
                 player.getPlayerRank(), player.getColorHex(), player.getHighestRank(),
@@ -169,12 +232,6 @@ public class PlayerService {
         return playerAuth;
     }
 
-    private ScoreHistory getMaxRank(Player e) {
-        var dummyScoreHistory = new ScoreHistory();
-        dummyScoreHistory.setPlayerOldRank(e.getPlayerRank());
-        return dummyScoreHistory;
-    }
-
     private String generateRandomColorHex() {
         Random random = new Random();
         int nextInt = random.nextInt(0xffffff + 1);
@@ -182,28 +239,11 @@ public class PlayerService {
     }
 
     private SecurePlayerInfo convert(Player player) {
-        return new SecurePlayerInfo(player.getId(), player.getName(), player.getRankScore(), player.getPlayerRank(),
+        return new SecurePlayerInfo(player.getId(), player.getName(), inactivityDecay.load().getEffectiveScore(player), player.getPlayerRank(),
                 player.getPlayerRank(), player.getColorHex(),
                 player.getHighestRank(), null, getPlayerStatus(player), player.getEmail());
     }
 
-    private @NotNull List<Player> getPlayerListByStatus(Optional<String> status) {
-        return getAllPlayers().stream().filter(p -> {
-            if (status.isEmpty() || status.get().isEmpty() || status.get().equalsIgnoreCase("ALL")) {
-                return true;
-            } else if (status.get().equalsIgnoreCase("INACTIVE")) {
-                return p.isDisabled();
-            } else if (status.get().equalsIgnoreCase("ACTIVE")) {
-                return p.isActive();
-            } else if (status.get().equalsIgnoreCase("ENABLED")) {
-                return p.isAvailableForGame() && !p.isDisabled();
-            } else {
-                return true;
-            }
-        }).toList();
-    }
-
-
     private PlayerStatus getPlayerStatus(Player player) {
         if(player.isActive()){
             return PlayerStatus.ACTIVE;
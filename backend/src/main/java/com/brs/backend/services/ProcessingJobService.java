@@ -0,0 +1,191 @@
+package com.brs.backend.services;
+
+import com.brs.backend.dto.ProcessingJobState;
+import com.brs.backend.dto.ProcessingJobStatus;
+import com.brs.backend.dto.ProcessingStage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs encounter processing and backfills as background jobs, so no request waits for a whole game day to be rated.
+ * <p>
+ * Jobs run one after the other on a dedicated thread, as every date builds on the ratings of the previous one.
+ * Submitting a date, or a backfill, that is already queued or running returns the existing job instead of processing
+ * it twice. Synchronous callers go through the same jobs and wait for them. Finished jobs stay available for the status
+ * endpoint for {@code processing.job-retention-hours}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessingJobService {
+
+    private static final String BACKFILL_JOB_KEY = "backfill";
+
+    private final EncounterProcessingService encounterProcessingService;
+
+    private final BackfillService backfillService;
+
+    @Value("${processing.job-retention-hours:24}")
+    private long jobRetentionHours;
+
+    private ExecutorService executorService;
+
+    private Cache<String, ProcessingJob> jobs;
+
+    // Queued or running job by date, or by BACKFILL_JOB_KEY
+    private final Map<String, ProcessingJob> activeJobs = new ConcurrentHashMap<>();
+
+    private static class ProcessingJob {
+        private final String id = UUID.randomUUID().toString();
+        private final String key;
+        private final Consumer<ProcessingJob> work;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile LocalDate date;
+        private volatile ProcessingJobState state = ProcessingJobState.QUEUED;
+        private volatile ProcessingStage stage = ProcessingStage.QUEUED;
+        private volatile int datesProcessed;
+        private volatile int datesTotal;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private ProcessingJob(String key, LocalDate date, int datesTotal, Consumer<ProcessingJob> work) {
+            this.key = key;
+            this.date = date;
+            this.datesTotal = datesTotal;
+            this.work = work;
+        }
+
+        private void enterStage(LocalDate date, ProcessingStage stage) {
+            if (this.date != null && !this.date.equals(date) && this.stage != ProcessingStage.QUEUED) {
+                datesProcessed++;
+            }
+            this.date = date;
+            this.stage = stage;
+        }
+
+        private ProcessingJobStatus toStatus() {
+            return new ProcessingJobStatus(id, date, state, stage, datesProcessed, datesTotal,
+                    submittedAt, startedAt, finishedAt, error);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        executorService = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("processing-", 1).factory());
+        jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(jobRetentionHours))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * Queues the processing of the date, or returns the job already queued or running for it.
+     */
+    public ProcessingJobStatus submit(LocalDate date) {
+        return submitProcessing(date).toStatus();
+    }
+
+    /**
+     * Same as {@link #submit(LocalDate)} waiting for the job to finish. Failures of the job are thrown to the caller.
+     */
+    public ProcessingJobStatus processAndWait(LocalDate date) {
+        ProcessingJob job = submitProcessing(date);
+        try {
+            job.completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return job.toStatus();
+    }
+
+    private ProcessingJob submitProcessing(LocalDate date) {
+        return submit(new ProcessingJob(date.toString(), date, 1, job ->
+                encounterProcessingService.processEncounters(date, stage -> job.enterStage(date, stage))));
+    }
+
+    /**
+     * Queues a backfill of every date with unprocessed encounters in the range, or returns the backfill already
+     * queued or running.
+     */
+    public ProcessingJobStatus submitBackfill(LocalDate from, LocalDate to) {
+        return submit(new ProcessingJob(BACKFILL_JOB_KEY, null, 0, job -> {
+            job.datesTotal = backfillService.getPendingDates(from, to).size();
+            var result = backfillService.backfill(from, to, job::enterStage);
+            job.datesTotal = result.dates();
+        })).toStatus();
+    }
+
+    private ProcessingJob submit(ProcessingJob submitted) {
+        ProcessingJob job = activeJobs.computeIfAbsent(submitted.key, key -> {
+            jobs.put(submitted.id, submitted);
+            executorService.execute(() -> run(submitted));
+            return submitted;
+        });
+        if (job != submitted) {
+            log.info("Processing job {} for {} is already {}", job.id, job.key, job.state);
+        } else {
+            log.info("Queued processing job {} for {}", job.id, job.key);
+        }
+        return job;
+    }
+
+    public Optional<ProcessingJobStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(ProcessingJob::toStatus);
+    }
+
+    private void run(ProcessingJob job) {
+        job.startedAt = Instant.now();
+        job.state = ProcessingJobState.RUNNING;
+        RuntimeException failure = null;
+        try {
+            job.work.accept(job);
+            job.datesProcessed = job.datesTotal;
+            job.stage = ProcessingStage.DONE;
+            job.state = ProcessingJobState.SUCCEEDED;
+        } catch (RuntimeException e) {
+            log.error("Processing job {} for {} failed at date {} with error [{}]", job.id, job.key, job.date, e.getMessage(), e);
+            job.error = e.getMessage();
+            job.state = ProcessingJobState.FAILED;
+            failure = e;
+        } finally {
+            job.finishedAt = Instant.now();
+            // Refreshes the retention of the finished job
+            jobs.put(job.id, job);
+            activeJobs.remove(job.key, job);
+            // Waiting callers are released once the job left the active jobs
+            if (failure != null) {
+                job.completion.completeExceptionally(failure);
+            } else {
+                job.completion.complete(null);
+            }
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package com.brs.backend.services;
 
+import com.brs.backend.common.PlayerDisplayCache;
 import com.brs.backend.dto.*;
-import com.brs.backend.model.Player;
 import com.brs.backend.model.ScoreHistory;
-import com.brs.backend.repositories.PlayerRepository;
+import com.brs.backend.repositories.ScoreBatchRepository;
 import com.brs.backend.repositories.ScoreHistoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,11 +24,14 @@ public class ScoreHistoryService {
     private ScoreHistoryRepository scoreHistoryRepository;
 
     @Autowired
-    private PlayerRepository playerRepository;
+    private PlayerDisplayCache playerDisplayCache;
+
+    @Autowired
+    private ScoreBatchRepository scoreBatchRepository;
 
     public PlayerHistory getPlayerHistory(int playerId, HistoryType type) {
         List<ScoreHistory> shs = scoreHistoryRepository.findAllByPlayerId(playerId);
-        Optional<Player> player = playerRepository.findById(playerId);
+        Optional<PlayerDisplay> player = playerDisplayCache.getPlayer(playerId);
 
         switch (type) {
             case RANK -> {
@@ -35,7 +41,7 @@ public class ScoreHistoryService {
                         .stream()
                         .sorted(Comparator.comparing(RankHistoryItem::date))
                         .toList();
-                return new PlayerRankHistory(player.orElseThrow().getName(), playerId, items);
+                return new PlayerRankHistory(player.orElseThrow().name(), playerId, items);
             }
             case SCORE -> {
                 List<ScoreHistoryItem> items = shs.stream()
@@ -44,7 +50,7 @@ public class ScoreHistoryService {
                         .stream()
                         .sorted(Comparator.comparing(ScoreHistoryItem::encounterId))
                         .toList();
-                return new PlayerScoreHistory(player.orElseThrow().getName(), playerId, items);
+                return new PlayerScoreHistory(player.orElseThrow().name(), playerId, items);
             }
             case ALL -> {
                 List<FlatHistoryItem> items = shs.stream()
@@ -53,12 +59,64 @@ public class ScoreHistoryService {
                         .stream()
                         .sorted(Comparator.comparing(FlatHistoryItem::encounterId))
                         .toList();
-                return new PlayerFlatHistory(player.orElseThrow().getName(), playerId, items);
+                return new PlayerFlatHistory(player.orElseThrow().name(), playerId, items);
             }
             case null, default -> throw new RuntimeException("History type now known : " + type);
         }
     }
 
+    /**
+     * Same as {@link #getPlayerHistory(int, HistoryType)} for every active player, read with one query ordered by
+     * player and grouped in a single pass.
+     */
+    public List<PlayerHistory> getActivePlayersHistory(HistoryType type) {
+        List<PlayerHistoryRow> rows = switch (type) {
+            case RANK -> scoreHistoryRepository.findAllHistoryByPlayerStatusOrderByDate(PlayerStatus.ACTIVE);
+            case SCORE, ALL -> scoreHistoryRepository.findAllHistoryByPlayerStatusOrderByEncounter(PlayerStatus.ACTIVE);
+            case null -> throw new RuntimeException("History type now known : " + type);
+        };
+
+        var histories = new ArrayList<PlayerHistory>();
+        int from = 0;
+        while (from < rows.size()) {
+            int to = from;
+            PlayerHistoryRow first = rows.get(from);
+            // Rows are ordered by player, and the ordering within a player is already the one of the history type
+            Set<Object> items = new LinkedHashSet<>();
+            while (to < rows.size() && rows.get(to).playerId().equals(first.playerId())) {
+                PlayerHistoryRow row = rows.get(to++);
+                if (row.encounterId() != null) {
+                    items.add(toHistoryItem(row, type));
+                }
+            }
+            histories.add(toPlayerHistory(first, type, new ArrayList<>(items)));
+            from = to;
+        }
+        return histories;
+    }
+
+    private static Object toHistoryItem(PlayerHistoryRow row, HistoryType type) {
+        return switch (type) {
+            case RANK -> new RankHistoryItem(row.encounterDate(), row.oldRank(), row.newRank());
+            case SCORE -> new ScoreHistoryItem(row.encounterId(), row.encounterDate(), row.oldRankScore(), row.newRankScore());
+            case ALL -> new FlatHistoryItem(row.encounterId(), row.encounterDate(), row.oldRank(), row.newRank(),
+                    row.oldRankScore(), row.newRankScore());
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PlayerHistory toPlayerHistory(PlayerHistoryRow row, HistoryType type, List<?> items) {
+        return switch (type) {
+            case RANK -> new PlayerRankHistory(row.playerName(), row.playerId(), (List<RankHistoryItem>) items);
+            case SCORE -> new PlayerScoreHistory(row.playerName(), row.playerId(), (List<ScoreHistoryItem>) items);
+            case ALL -> new PlayerFlatHistory(row.playerName(), row.playerId(), (List<FlatHistoryItem>) items);
+        };
+    }
+
+    public void updateEncounterNewRankings(LocalDate encounterDate) {
+        scoreBatchRepository.stampNewRanks(encounterDate);
+    }
+
     public void updatePlayerEncounterNewRanking(int playerId, LocalDate encounterDate, int newRanking) {
         List<ScoreHistory> allByPlayerIdAndEncounterDate = scoreHistoryRepository.findAllByPlayerIdAndEncounterDate(playerId, encounterDate);
         for (ScoreHistory scoreHistory : allByPlayerIdAndEncounterDate) {
@@ -0,0 +1,126 @@
+package com.brs.backend.services;
+
+import com.brs.backend.core.EloRankScoreCalculator;
+import com.brs.backend.core.InactivityDecay;
+import com.brs.backend.core.RatingsUpdatedEvent;
+import com.brs.backend.dto.Matchup;
+import com.brs.backend.dto.MatchupPrediction;
+import com.brs.backend.model.Player;
+import com.brs.backend.repositories.PlayerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expected outcomes of candidate games for the game planner.
+ * <p>
+ * Keeps the Elo expected score of every pair of players available for a game in a flat n x n array, rebuilt after
+ * each change of the ratings. A team's expected score is the one of its average rating, which in odds is the geometric
+ * mean of the pairwise odds of all cross-team pairs, so any matchup is answered from the matrix without a query.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WinProbabilityService {
+
+    private final PlayerRepository playerRepository;
+
+    private final InactivityDecay inactivityDecay;
+
+    private volatile ExpectationMatrix matrix;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingsUpdated(RatingsUpdatedEvent event) {
+        rebuild();
+    }
+
+    public void rebuild() {
+        List<Player> players = playerRepository.findAll().stream()
+                .filter(Player::isAvailableForGame)
+                .toList();
+        matrix = new ExpectationMatrix(players, inactivityDecay.load());
+        log.info("Rebuilt the win probability matrix for {} players", players.size());
+    }
+
+    public List<MatchupPrediction> predict(List<Matchup> matchups) {
+        ExpectationMatrix current = matrix;
+        if (current == null) {
+            rebuild();
+            current = matrix;
+        }
+        var predictions = new ArrayList<MatchupPrediction>(matchups.size());
+        for (Matchup matchup : matchups) {
+            double team1Expected = current.teamExpectedScore(matchup.team1(), matchup.team2());
+            predictions.add(new MatchupPrediction(team1Expected, 1 - team1Expected));
+        }
+        return predictions;
+    }
+
+    private static final class ExpectationMatrix {
+
+        private final int[] slotByPlayerId;
+        private final int size;
+        // expectedScores[i * size + j] is the expected score of the player in slot i against the one in slot j
+        private final double[] expectedScores;
+
+        private ExpectationMatrix(List<Player> players, InactivityDecay.Snapshot decay) {
+            int maxPlayerId = players.stream().mapToInt(Player::getId).max().orElse(0);
+            slotByPlayerId = new int[maxPlayerId + 1];
+            Arrays.fill(slotByPlayerId, -1);
+            size = players.size();
+
+            double[] scores = new double[size];
+            for (int slot = 0; slot < size; slot++) {
+                Player player = players.get(slot);
+                slotByPlayerId[player.getId()] = slot;
+                scores[slot] = decay.getEffectiveScore(player);
+            }
+
+            expectedScores = new double[size * size];
+            for (int i = 0; i < size; i++) {
+                expectedScores[i * size + i] = 0.5;
+                for (int j = i + 1; j < size; j++) {
+                    double expected = EloRankScoreCalculator.expectedScore(scores[i], scores[j]);
+                    expectedScores[i * size + j] = expected;
+                    expectedScores[j * size + i] = 1 - expected;
+                }
+            }
+        }
+
+        private double teamExpectedScore(int[] team1, int[] team2) {
+            if (team1 == null || team2 == null || team1.length == 0 || team2.length == 0) {
+                throw new IllegalArgumentException("Both teams need at least one player");
+            }
+            double logOdds = 0;
+            for (int player1 : team1) {
+                int slot1 = slotOf(player1);
+                for (int player2 : team2) {
+                    double expected = expectedScores[slot1 * size + slotOf(player2)];
+                    logOdds += Math.log(expected / (1 - expected));
+                }
+            }
+            double teamOdds = Math.exp(logOdds / (team1.length * team2.length));
+            return teamOdds / (1 + teamOdds);
+        }
+
+        private int slotOf(int playerId) {
+            int slot = playerId >= 0 && playerId < slotByPlayerId.length ? slotByPlayerId[playerId] : -1;
+            if (slot < 0) {
+                throw new IllegalArgumentException("Player with id '" + playerId + "' is not available for a game");
+            }
+            return slot;
+        }
+    }
+}
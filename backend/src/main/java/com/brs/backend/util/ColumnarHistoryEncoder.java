@@ -0,0 +1,108 @@
+package com.brs.backend.util;
+
+import com.brs.backend.dto.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Converts the per-item player history into the column oriented {@link ColumnarHistory}.
+ */
+public final class ColumnarHistoryEncoder {
+
+    private ColumnarHistoryEncoder() {
+    }
+
+    public static ColumnarHistory encode(HistoryType type, List<? extends PlayerHistory> histories) {
+        var dateSet = new TreeSet<LocalDate>();
+        for (PlayerHistory history : histories) {
+            switch (history) {
+                case PlayerRankHistory h -> h.getHistory().forEach(i -> dateSet.add(i.date()));
+                case PlayerScoreHistory h -> h.getHistory().forEach(i -> dateSet.add(i.encounterDate()));
+                case PlayerFlatHistory h -> h.getHistory().forEach(i -> dateSet.add(i.encounterDate()));
+                default -> throw new RuntimeException("History type now known : " + history.getClass());
+            }
+        }
+        List<LocalDate> dates = new ArrayList<>(dateSet);
+
+        var players = new ArrayList<ColumnarPlayerHistory>(histories.size());
+        for (PlayerHistory history : histories) {
+            players.add(switch (history) {
+                case PlayerRankHistory h -> encodeRanks(h, dates);
+                case PlayerScoreHistory h -> encodeScores(h, dates);
+                case PlayerFlatHistory h -> encodeFlat(h, dates);
+                default -> throw new RuntimeException("History type now known : " + history.getClass());
+            });
+        }
+        return new ColumnarHistory(type, dates, players);
+    }
+
+    private static ColumnarPlayerHistory encodeRanks(PlayerRankHistory history, List<LocalDate> dates) {
+        List<RankHistoryItem> items = history.getHistory();
+        int[] dateIndexes = new int[items.size()];
+        int[] oldRanks = new int[items.size()];
+        int[] newRanks = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            RankHistoryItem item = items.get(i);
+            dateIndexes[i] = dateIndex(dates, item.date());
+            oldRanks[i] = item.oldRank();
+            newRanks[i] = item.newRank();
+        }
+        return new ColumnarPlayerHistory(history.getPlayerId(), history.getPlayerName(), null,
+                delta(dateIndexes), delta(oldRanks), delta(newRanks), null, null);
+    }
+
+    private static ColumnarPlayerHistory encodeScores(PlayerScoreHistory history, List<LocalDate> dates) {
+        List<ScoreHistoryItem> items = history.getHistory();
+        int[] encounterIds = new int[items.size()];
+        int[] dateIndexes = new int[items.size()];
+        double[] oldScores = new double[items.size()];
+        double[] newScores = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            ScoreHistoryItem item = items.get(i);
+            encounterIds[i] = item.encounterId();
+            dateIndexes[i] = dateIndex(dates, item.encounterDate());
+            oldScores[i] = item.oldRankScore();
+            newScores[i] = item.newRankScore();
+        }
+        return new ColumnarPlayerHistory(history.getPlayerId(), history.getPlayerName(), delta(encounterIds),
+                delta(dateIndexes), null, null, oldScores, newScores);
+    }
+
+    private static ColumnarPlayerHistory encodeFlat(PlayerFlatHistory history, List<LocalDate> dates) {
+        List<FlatHistoryItem> items = history.getHistory();
+        int[] encounterIds = new int[items.size()];
+        int[] dateIndexes = new int[items.size()];
+        int[] oldRanks = new int[items.size()];
+        int[] newRanks = new int[items.size()];
+        double[] oldScores = new double[items.size()];
+        double[] newScores = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            FlatHistoryItem item = items.get(i);
+            encounterIds[i] = item.encounterId();
+            dateIndexes[i] = dateIndex(dates, item.encounterDate());
+            oldRanks[i] = item.oldRank();
+            newRanks[i] = item.newRank();
+            oldScores[i] = item.oldRankScore();
+            newScores[i] = item.newRankScore();
+        }
+        return new ColumnarPlayerHistory(history.getPlayerId(), history.getPlayerName(), delta(encounterIds),
+                delta(dateIndexes), delta(oldRanks), delta(newRanks), oldScores, newScores);
+    }
+
+    private static int dateIndex(List<LocalDate> dates, LocalDate date) {
+        return Collections.binarySearch(dates, date);
+    }
+
+    // Encodes in place, every value after the first becomes the difference to its predecessor. Only used for integer
+    // columns, the difference of two doubles does not always add back up to the exact value
+    private static int[] delta(int[] values) {
+        for (int i = values.length - 1; i > 0; i--) {
+            values[i] -= values[i - 1];
+        }
+        return values;
+    }
+}
@@ -3,14 +3,20 @@ package com.brs.backend.util;
 import com.brs.backend.dto.EncounterResult;
 import com.brs.backend.dto.Team;
 import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 @Component
 @Slf4j
@@ -19,48 +25,81 @@ public class EncounterUtil {
     @Autowired
     private PlayerUtil playerUtil;
 
+    private static final String ENCOUNTER_FILE_PREFIX = "encounter_";
+
+    private static final Pattern ENCOUNTER_FILE_DATE_PATTERN = Pattern.compile("20[2-9][0-9]-[0-1][0-9]-[0-3][0-9]");
+
+    /**
+     * Validates an encounter sheet name, {@code encounter_<yyyy-mm-dd>....csv}, and returns its date.
+     */
+    public LocalDate parseEncounterFileDate(String fileName) {
+        if (fileName == null) {
+            throw new RuntimeException("File name should not be null");
+        }
+
+        if (!fileName.startsWith(ENCOUNTER_FILE_PREFIX)) {
+            throw new RuntimeException("Encounter file name should starts with 'encounter_'");
+        }
+
+        String dateSubStr = fileName.length() < 20 ? "" : fileName.substring(10, 20);
+
+        if (!ENCOUNTER_FILE_DATE_PATTERN.matcher(dateSubStr).find()) {
+            throw new RuntimeException("Encounter file name should starts with 'encounter_' and then should be immediately followed by a date string in the format of yyyy-mm-dd");
+        }
+
+        LocalDate encounterDate = LocalDate.parse(dateSubStr);
+
+        if (!fileName.endsWith(".csv")) {
+            throw new RuntimeException("Encounter file name should have the extension : '.csv'");
+        }
+        return encounterDate;
+    }
+
     public List<EncounterResult> parseCsvFileToEncounters(MultipartFile file) {
         List<EncounterResult> encounterResults = new ArrayList<>();
-
-        List<List<String>> records = new ArrayList<>();
-        try (CSVReader csvReader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            String[] values;
-            while ((values = csvReader.readNext()) != null) {
-                records.add(Arrays.asList(values));
-            }
-        } catch (Exception e) {
+        try {
+            parseCsvEncounters(new InputStreamReader(file.getInputStream()), encounterResults::add);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        return encounterResults;
+    }
 
-        int i = 1;
-        while (true) {
-            if (i >= records.size()) {
-                break;
-            }
-            List<String> record = records.get(i);
-            String group = record.get(1);
-            if (group.equalsIgnoreCase("x")) {
-                // No group indicates the end of encounters
-                break;
-            }
+    /**
+     * Reads the sheet record by record and hands over the sets of every group as soon as the group ended, so only the
+     * records of the current group are held in memory.
+     */
+    public void parseCsvEncounters(Reader reader, Consumer<EncounterResult> consumer) {
+        try (CSVReader csvReader = new CSVReader(reader)) {
+            // First line is the header
+            csvReader.skip(1);
 
+            String group = null;
             List<List<String>> groupRecords = new ArrayList<>();
-            groupRecords.add(record);
-            while (true) {
-                i++;
-                if (i >= records.size()) {
-                    break;
+            String[] values;
+            while ((values = csvReader.readNext()) != null) {
+                List<String> record = Arrays.asList(values);
+                if (group != null && group.equalsIgnoreCase(record.get(1))) {
+                    groupRecords.add(record);
+                    continue;
+                }
+                if (!groupRecords.isEmpty()) {
+                    processGroup(groupRecords).forEach(consumer);
+                    groupRecords = new ArrayList<>();
                 }
-                List<String> line = records.get(i);
-                if (group.equalsIgnoreCase(line.get(1))) {
-                    groupRecords.add(line);
-                } else {
+                group = record.get(1);
+                if (group.equalsIgnoreCase("x")) {
+                    // No group indicates the end of encounters
                     break;
                 }
+                groupRecords.add(record);
             }
-            encounterResults.addAll(processGroup(groupRecords));
+            if (!groupRecords.isEmpty()) {
+                processGroup(groupRecords).forEach(consumer);
+            }
+        } catch (IOException | CsvValidationException e) {
+            throw new RuntimeException(e);
         }
-        return encounterResults;
     }
 
     private List<EncounterResult> processGroup(List<List<String>> groupRecords) {
@@ -1,5 +1,6 @@
 package com.brs.backend.util;
 
+import com.brs.backend.common.PlayerDisplayCache;
 import com.brs.backend.dto.Team;
 import com.brs.backend.dto.TeamV2;
 import com.brs.backend.model.Player;
@@ -9,8 +10,13 @@ import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,15 +28,40 @@ public class PlayerUtil {
     @Autowired
     PlayerRepository playerRepository;
 
+    @Autowired
+    PlayerDisplayCache playerDisplayCache;
+
     public String getTeamPlayerIdsString(Team team) {
-        return getTeamPlayers(team)
-                .stream()
-                .map(Player::getId)
+        return Stream.of(getPlayerId(team.player1()), getPlayerId(team.player2()))
                 .sorted()
                 .map(Object::toString)
                 .collect(Collectors.joining(PLAYER_ID_DELIMITER));
     }
 
+    /**
+     * Same as {@link #getTeamPlayerIdsString(Team)} resolving the names through an index built by
+     * {@link #getPlayerIdsByLowerCaseName()}.
+     */
+    public String getTeamPlayerIdsString(Team team, Map<String, Integer> playerIdsByLowerCaseName) {
+        return Stream.of(team.player1(), team.player2())
+                .map(name -> playerIdsByLowerCaseName.get(name.toLowerCase(Locale.ROOT)))
+                .sorted()
+                .map(Object::toString)
+                .collect(Collectors.joining(PLAYER_ID_DELIMITER));
+    }
+
+    /**
+     * Reads every player once and returns their ids by lower case name, so a whole batch of names is resolved with a
+     * single query.
+     */
+    public Map<String, Integer> getPlayerIdsByLowerCaseName() {
+        Map<String, Integer> playerIds = new HashMap<>();
+        for (Player player : playerRepository.findAll()) {
+            playerIds.put(player.getName().toLowerCase(Locale.ROOT), player.getId());
+        }
+        return playerIds;
+    }
+
     public String getTeamPlayerIdsStringV2(TeamV2 team) {
         return Arrays.asList(team.player1(),team.player2())
                 .stream().sorted().map(Object::toString)
@@ -39,9 +70,20 @@ public class PlayerUtil {
 
 
     public List<Player> getPlayersByIdsString(String idsString) {
-        return Arrays.stream(idsString.split(PLAYER_ID_DELIMITER))
-                .map(e -> playerRepository.findById(Integer.parseInt(e)).orElseThrow())
+        List<Integer> ids = Arrays.stream(idsString.split(PLAYER_ID_DELIMITER))
+                .map(Integer::parseInt)
                 .toList();
+        Map<Integer, Player> players = playerRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Player::getId, Function.identity()));
+        return ids.stream()
+                .map(id -> Optional.ofNullable(players.get(id)).orElseThrow())
+                .toList();
+    }
+
+    public int[] getPlayerIdsByIdsString(String idsString) {
+        return Arrays.stream(idsString.split(PLAYER_ID_DELIMITER))
+                .mapToInt(Integer::parseInt)
+                .toArray();
     }
 
     public List<Player> getTeamPlayers(Team team) {
@@ -59,10 +101,15 @@ public class PlayerUtil {
         }
     }
 
-    public List<Player> getRankedPlayers(List<Player> players) {
+    public int getPlayerId(String playerName) {
+        return playerDisplayCache.getPlayerIdByName(playerName)
+                .orElseThrow(() -> new RuntimeException("Player with name '" + playerName + "' not found"));
+    }
+
+    public List<Player> getRankedPlayers(List<Player> players, ToDoubleFunction<Player> scoreFunction) {
         return players.stream()
                 .sorted(Comparator.comparingInt(Player::getPlayerRank)) // First with the current ranking to keep consistent ranking when scores are the same
-                .sorted((d1, d2) -> Double.compare(d2.getRankScore(), d1.getRankScore())) // Second with the descending order of rank setPoints
+                .sorted((d1, d2) -> Double.compare(scoreFunction.applyAsDouble(d2), scoreFunction.applyAsDouble(d1))) // Second with the descending order of rank setPoints
                 .toList();
     }
 }